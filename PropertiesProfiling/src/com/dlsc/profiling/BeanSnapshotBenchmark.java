@@ -0,0 +1,202 @@
+package com.dlsc.profiling;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Measures the {@link BeanSnapshots} on large collections of employees of every class:
+ * the throughput of copying all of them, the bytes allocated by the copy compared to
+ * creating the same number of empty employees (which should be the same, as no property
+ * gets created), and the throughput of snapshots and diffs.
+ * <p>
+ * Usage:
+ * <pre>
+ *     BeanSnapshotBenchmark [--count 1000000] [--properties] [--iterations 5]
+ * </pre>
+ * With <code>--properties</code> the properties of the source employees are created first.
+ */
+public class BeanSnapshotBenchmark {
+
+    private final EmployeeBenchmark benchmark = new EmployeeBenchmark();
+
+    private int count = 1000000;
+    private boolean accessProperties;
+    private int iterations = 5;
+
+    /*
+     * Keeps the results alive, so the JIT can not remove the work.
+     */
+    private long sink;
+
+    public final void setCount(int count) {
+        this.count = count;
+    }
+
+    public final void setAccessProperties(boolean accessProperties) {
+        this.accessProperties = accessProperties;
+    }
+
+    public final void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    public SnapshotResult test(Class<? extends EmployeeIF> employeeType) {
+        SnapshotResult result = new SnapshotResult(employeeType, count, iterations);
+        Supplier<EmployeeIF> factory = () -> benchmark.create(employeeType, null, null);
+
+        List<EmployeeIF> employees = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            EmployeeIF employee = benchmark.create(employeeType, "name " + i, "powers");
+            if (accessProperties) {
+                employee.nameProperty();
+                employee.powersProperty();
+                employee.supervisorProperty();
+            }
+            employees.add(employee);
+        }
+
+        // the reference: what creating the target employees alone allocates
+        long bytes = getAllocatedBytes();
+        List<EmployeeIF> empty = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            empty.add(factory.get());
+        }
+        result.createdBytes = getAllocatedBytes() - bytes;
+        sink += empty.size();
+        empty = null;
+
+        List<EmployeeIF> copies = null;
+        for (int i = 0; i <= iterations; i++) { // the first iteration warms up
+            copies = null;
+            System.gc();
+            bytes = getAllocatedBytes();
+            long time = System.nanoTime();
+            copies = BeanSnapshots.copyAll(employees, factory);
+            long nanos = System.nanoTime() - time;
+            if (i > 0) {
+                result.copyNanos += nanos;
+                result.copiedBytes = getAllocatedBytes() - bytes;
+            }
+        }
+
+        for (int i = 0; i < count; i += 10) {
+            copies.get(i).setName("changed");
+        }
+
+        for (int i = 0; i <= iterations; i++) {
+            long time = System.nanoTime();
+            for (EmployeeIF employee : employees) {
+                sink += BeanSnapshots.snapshot(employee).hashCode();
+            }
+            if (i > 0) {
+                result.snapshotNanos += System.nanoTime() - time;
+            }
+
+            long changed = 0;
+            time = System.nanoTime();
+            for (int j = 0; j < count; j++) {
+                changed += BeanSnapshots.diff(employees.get(j), copies.get(j)).size();
+            }
+            if (i > 0) {
+                result.diffNanos += System.nanoTime() - time;
+            }
+            result.changed = changed;
+        }
+
+        return result;
+    }
+
+    private static long getAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    public static class SnapshotResult {
+
+        final Class<? extends EmployeeIF> employeeType;
+        final int count;
+        final int iterations;
+
+        long createdBytes;
+        long copiedBytes;
+        long copyNanos;
+        long snapshotNanos;
+        long diffNanos;
+        long changed;
+
+        SnapshotResult(Class<? extends EmployeeIF> employeeType, int count, int iterations) {
+            this.employeeType = employeeType;
+            this.count = count;
+            this.iterations = iterations;
+        }
+
+        /**
+         * @return Beans per millisecond.
+         */
+        public final long getCopyThroughput() {
+            return throughput(copyNanos);
+        }
+
+        public final long getSnapshotThroughput() {
+            return throughput(snapshotNanos);
+        }
+
+        public final long getDiffThroughput() {
+            return throughput(diffNanos);
+        }
+
+        /**
+         * @return The bytes allocated by copying, beyond the empty beans themselves.
+         */
+        public final long getCopyOverhead() {
+            return copiedBytes - createdBytes;
+        }
+
+        public final long getChanged() {
+            return changed;
+        }
+
+        private long throughput(long nanos) {
+            return nanos == 0 ? 0 : (long) count * iterations * 1000000 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-26s %12d %14s %12d %12d %10d", employeeType.getSimpleName(), getCopyThroughput(),
+                    EmployeeProfiling.humanReadableByteCount(getCopyOverhead(), true), getSnapshotThroughput(), getDiffThroughput(), changed);
+        }
+    }
+
+    public static void main(String[] args) {
+        BeanSnapshotBenchmark snapshotBenchmark = new BeanSnapshotBenchmark();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--count":
+                    snapshotBenchmark.setCount(Integer.parseInt(args[++i]));
+                    break;
+                case "--properties":
+                    snapshotBenchmark.setAccessProperties(true);
+                    break;
+                case "--iterations":
+                    snapshotBenchmark.setIterations(Integer.parseInt(args[++i]));
+                    break;
+                default:
+                    System.err.println("Unexpected argument " + args[i]);
+                    System.err.println("Usage: BeanSnapshotBenchmark [--count 1000000] [--properties] [--iterations 5]");
+                    System.exit(2);
+            }
+        }
+
+        System.out.println("Testing count = " + snapshotBenchmark.count + (snapshotBenchmark.accessProperties ? ", with properties" : ""));
+        System.out.println(String.format("%-26s %12s %14s %12s %12s %10s", "Strategy", "Copies/ms", "Copy overhead", "Snaps/ms", "Diffs/ms", "Changed"));
+        for (Class<? extends EmployeeIF> type : snapshotBenchmark.benchmark.getTestClasses()) {
+            System.out.println(snapshotBenchmark.test(type));
+        }
+    }
+}
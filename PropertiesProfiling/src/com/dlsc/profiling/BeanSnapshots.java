@@ -0,0 +1,458 @@
+package com.dlsc.profiling;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import javafx.beans.property.Property;
+import javafx.collections.FXCollections;
+
+/**
+ * The BeanSnapshots is a static utility class to take snapshots of beans, restore them,
+ * copy beans and find the fields that differ. Generic bean utilities go through the
+ * xxxProperty() methods and thereby create all the properties the shadow fields pattern
+ * tries to avoid. This class reads the raw values directly from the fields instead:
+ * <ul>
+ *     <li>a pair of fields <code>_name</code> and <code>name</code> is a shadow field, the
+ *     value is read from the property if it has been created, else from the raw field</li>
+ *     <li>a shadow field with a <code>long _nameRef</code> field may hold its value as a handle
+ *     into an off-heap storage (see {@link EmployeeColdShadowFields}), so the raw value is read
+ *     through the getter, which decodes it, and the handle is not a field of its own</li>
+ *     <li>any other field holds either the raw value or a property (like the fields of the
+ *     PropertyAccessors), properties are unwrapped</li>
+ *     <li>static and transient fields are ignored, so derived fields should be declared transient</li>
+ * </ul>
+ * Values are written through the public setter of the field if there is one, so that
+ * derived fields get invalidated, else directly into the field. Collections are treated as
+ * values, a null collection equals an empty one and does not get created when copied.
+ * <p>
+ * The default of a field is declared by a static final field named after it, e.g.
+ * <code>DEFAULT_POWERS</code> for <code>powers</code>, otherwise it is null (or an empty
+ * collection). Fields holding their default are not written when the target holds the
+ * default as well, and are left out by {@link #getNonDefaultValues(Object)}.
+ * <p>
+ * The fields of a class are looked up once and accessed through cached MethodHandles.
+ */
+public final class BeanSnapshots {
+
+    private static final ClassValue<BeanField[]> FIELDS = new ClassValue<BeanField[]>() {
+        @Override
+        protected BeanField[] computeValue(Class<?> type) {
+            return lookupFields(type);
+        }
+    };
+
+    private BeanSnapshots() {}
+
+    /**
+     * The values of all fields of a bean at the time the snapshot was taken.
+     */
+    public static final class Snapshot {
+
+        private final Class<?> type;
+        private final Object[] values;
+
+        Snapshot(Class<?> type, Object[] values) {
+            this.type = type;
+            this.values = values;
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+
+        public Object get(String fieldName) {
+            BeanField[] fields = FIELDS.get(type);
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i].name.equals(fieldName)) {
+                    return values[i];
+                }
+            }
+            throw new IllegalArgumentException("Unknown field " + fieldName + " of " + type.getName());
+        }
+    }
+
+    /**
+     * @param type The bean class.
+     * @return The names of the fields taken into account, without the leading underscore of shadow fields.
+     */
+    public static List<String> getFieldNames(Class<?> type) {
+        List<String> names = new ArrayList<>();
+        for (BeanField field : FIELDS.get(type)) {
+            names.add(field.name);
+        }
+        return names;
+    }
+
+    /**
+     * Returns the values of all fields that do not hold their default, which is all that
+     * needs to be stored to recreate the bean with {@link #restore(Object, Map)}.
+     * @param bean The bean.
+     * @return The values by field name.
+     */
+    public static Map<String, Object> getNonDefaultValues(Object bean) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (BeanField field : FIELDS.get(bean.getClass())) {
+            Object value = field.get(bean);
+            if (!field.isDefault(value)) {
+                values.put(field.name, value);
+            }
+        }
+        return values;
+    }
+
+    public static Snapshot snapshot(Object bean) {
+        BeanField[] fields = FIELDS.get(bean.getClass());
+        Object[] values = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            Object value = fields[i].get(bean);
+            if (fields[i].collection) {
+                value = isEmpty(value) ? null : new ArrayList<>((List<?>) value);
+            }
+            values[i] = value;
+        }
+        return new Snapshot(bean.getClass(), values);
+    }
+
+    public static void restore(Object bean, Snapshot snapshot) {
+        checkType(bean, snapshot.type);
+        BeanField[] fields = FIELDS.get(snapshot.type);
+        for (int i = 0; i < fields.length; i++) {
+            fields[i].copy(bean, snapshot.values[i]);
+        }
+    }
+
+    /**
+     * Restores the values returned by {@link #getNonDefaultValues(Object)}. Every field
+     * missing from the values is reset to its default, as the constructors of the beans do
+     * not necessarily leave the fields at their defaults, e.g. <code>setPowers(null)</code>.
+     * @param bean The bean to restore.
+     * @param values The values by field name.
+     */
+    public static void restore(Object bean, Map<String, ?> values) {
+        BeanField[] fields = FIELDS.get(bean.getClass());
+        int found = 0;
+        for (BeanField field : fields) {
+            if (values.containsKey(field.name)) {
+                field.copy(bean, values.get(field.name));
+                found++;
+            } else {
+                field.copy(bean, field.defaultValue);
+            }
+        }
+        if (found < values.size()) {
+            List<String> unknown = new ArrayList<>(values.keySet());
+            unknown.removeAll(getFieldNames(bean.getClass()));
+            throw new IllegalArgumentException("Unknown fields " + unknown + " of " + bean.getClass().getName());
+        }
+    }
+
+    /**
+     * Copies the values of all fields of the source into the target. Collections are copied
+     * into the collection of the target, the elements themselves are not copied.
+     * @param source The bean to copy from.
+     * @param target The bean to copy into, of the same class.
+     */
+    public static <T> void copy(T source, T target) {
+        checkType(target, source.getClass());
+        for (BeanField field : FIELDS.get(source.getClass())) {
+            field.copy(target, field.get(source));
+        }
+    }
+
+    /**
+     * Copies a list of beans. Apart from the list and the beans created by the factory
+     * nothing gets allocated, unless the source beans have non-empty collections.
+     * @param sources The beans to copy.
+     * @param factory Creates the new beans.
+     * @return The copies, in the same order.
+     */
+    public static <T> List<T> copyAll(List<? extends T> sources, Supplier<? extends T> factory) {
+        List<T> copies = new ArrayList<>(sources.size());
+        for (T source : sources) {
+            T copy = factory.get();
+            copy(source, copy);
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    /**
+     * @param a A bean.
+     * @param b Another bean of the same class.
+     * @return The names of the fields with different values, an empty list if there are none.
+     */
+    public static List<String> diff(Object a, Object b) {
+        checkType(b, a.getClass());
+        List<String> changed = Collections.emptyList();
+        for (BeanField field : FIELDS.get(a.getClass())) {
+            if (!field.equals(field.get(a), field.get(b))) {
+                changed = add(changed, field.name);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @param snapshot A snapshot of the bean.
+     * @param bean The bean.
+     * @return The names of the fields that changed since the snapshot was taken.
+     */
+    public static List<String> diff(Snapshot snapshot, Object bean) {
+        checkType(bean, snapshot.type);
+        List<String> changed = Collections.emptyList();
+        BeanField[] fields = FIELDS.get(snapshot.type);
+        for (int i = 0; i < fields.length; i++) {
+            if (!fields[i].equals(snapshot.values[i], fields[i].get(bean))) {
+                changed = add(changed, fields[i].name);
+            }
+        }
+        return changed;
+    }
+
+    private static List<String> add(List<String> changed, String name) {
+        if (changed.isEmpty()) {
+            changed = new ArrayList<>();
+        }
+        changed.add(name);
+        return changed;
+    }
+
+    private static void checkType(Object bean, Class<?> type) {
+        if (bean.getClass() != type) {
+            throw new IllegalArgumentException("Expected a bean of " + type.getName() + " but got " + bean.getClass().getName());
+        }
+    }
+
+    private static boolean isEmpty(Object collection) {
+        return collection == null || ((List<?>) collection).isEmpty();
+    }
+
+    private static BeanField[] lookupFields(Class<?> type) {
+        Map<String, Field> declared = new HashMap<>();
+        for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers()) && !field.isSynthetic()) {
+                    declared.putIfAbsent(field.getName(), field);
+                }
+            }
+        }
+
+        Map<String, Object> defaults = new HashMap<>();
+        for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers) && field.getName().startsWith("DEFAULT_")) {
+                    field.setAccessible(true);
+                    try {
+                        defaults.putIfAbsent(field.getName(), field.get(null));
+                    } catch (IllegalAccessException e) {
+                        throw new RuntimeException("Can not access the default " + field.getName() + " of " + type.getName(), e);
+                    }
+                }
+            }
+        }
+
+        Map<String, Method> setters = new HashMap<>();
+        Map<String, Method> getters = new HashMap<>();
+        for (Method method : type.getMethods()) {
+            if (method.isBridge() || Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            if (method.getName().startsWith("set") && method.getParameterCount() == 1) {
+                setters.put(method.getName(), method);
+            } else if (method.getName().startsWith("get") && method.getParameterCount() == 0) {
+                getters.put(method.getName(), method);
+            }
+        }
+
+        List<BeanField> fields = new ArrayList<>();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            for (Field field : declared.values()) {
+                String name = field.getName();
+                if (name.startsWith("_") && declared.containsKey(name.substring(1))) {
+                    continue; // the raw part of a shadow field, handled together with the property
+                }
+                if (isHandle(field, declared)) {
+                    continue; // read through the getter of the shadow field
+                }
+
+                Field raw = declared.get("_" + name);
+                Field property = raw == null ? null : field;
+                if (raw == null) {
+                    raw = field;
+                }
+                raw.setAccessible(true);
+                field.setAccessible(true);
+
+                String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+                Method setter = setters.get("set" + suffix);
+                Method getter = getters.get("get" + suffix);
+                MethodHandle rawGetter = property != null && declared.containsKey("_" + name + "Ref") && getter != null
+                        ? lookup.unreflect(getter).asType(MethodType.methodType(Object.class, Object.class))
+                        : getter(lookup, raw);
+                fields.add(new BeanField(name,
+                        rawGetter,
+                        property == null ? null : getter(lookup, property),
+                        setter == null ? null : lookup.unreflect(setter).asType(MethodType.methodType(void.class, Object.class, Object.class)),
+                        lookup.unreflectSetter(raw).asType(MethodType.methodType(void.class, Object.class, Object.class)),
+                        List.class.isAssignableFrom(field.getType()),
+                        defaults.get(defaultName(name))));
+            }
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Can not access the fields of " + type.getName(), e);
+        }
+
+        fields.sort((a, b) -> a.name.compareTo(b.name));
+        return fields.toArray(new BeanField[fields.size()]);
+    }
+
+    /*
+     * _nameRef next to the shadow field _name / name
+     */
+    private static boolean isHandle(Field field, Map<String, Field> declared) {
+        String name = field.getName();
+        if (!name.startsWith("_") || !name.endsWith("Ref") || field.getType() != long.class) {
+            return false;
+        }
+        String shadowed = name.substring(1, name.length() - "Ref".length());
+        return declared.containsKey("_" + shadowed) && declared.containsKey(shadowed);
+    }
+
+    /*
+     * myBrain -> DEFAULT_MY_BRAIN
+     */
+    private static String defaultName(String fieldName) {
+        StringBuilder sb = new StringBuilder("DEFAULT_");
+        for (int i = 0; i < fieldName.length(); i++) {
+            char c = fieldName.charAt(i);
+            if (Character.isUpperCase(c) && i > 0) {
+                sb.append('_');
+            }
+            sb.append(Character.toUpperCase(c));
+        }
+        return sb.toString();
+    }
+
+    private static MethodHandle getter(MethodHandles.Lookup lookup, Field field) throws IllegalAccessException {
+        return lookup.unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class));
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new RuntimeException(t);
+    }
+
+    private static final class BeanField {
+
+        final String name;
+        final MethodHandle raw;
+        final MethodHandle property;
+        final MethodHandle setter;
+        final MethodHandle rawSetter;
+        final boolean collection;
+        final Object defaultValue;
+
+        BeanField(String name, MethodHandle raw, MethodHandle property, MethodHandle setter, MethodHandle rawSetter, boolean collection, Object defaultValue) {
+            this.name = name;
+            this.raw = raw;
+            this.property = property;
+            this.setter = setter;
+            this.rawSetter = rawSetter;
+            this.collection = collection;
+            this.defaultValue = defaultValue;
+        }
+
+        boolean isDefault(Object value) {
+            return collection ? isEmpty(value) : PropertyAccessors.isDefault(value, defaultValue);
+        }
+
+        /**
+         * Sets the value, unless both the value and the current value of the bean are the default.
+         */
+        void copy(Object bean, Object value) {
+            if (!isDefault(value) || !isDefault(get(bean))) {
+                set(bean, value);
+            }
+        }
+
+        /**
+         * Reads the value without creating the property.
+         */
+        Object get(Object bean) {
+            try {
+                if (property != null) {
+                    Object p = (Object) property.invokeExact(bean);
+                    if (p != null) {
+                        return ((Property<?>) p).getValue();
+                    }
+                }
+                return PropertyAccessors.getValue((Object) raw.invokeExact(bean));
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        void set(Object bean, Object value) {
+            try {
+                if (collection) {
+                    setCollection(bean, value);
+                } else if (setter != null) {
+                    setter.invokeExact(bean, value);
+                } else {
+                    Object current = property != null ? (Object) property.invokeExact(bean) : (Object) raw.invokeExact(bean);
+                    if (current instanceof Property) {
+                        ((Property<Object>) current).setValue(value);
+                    } else {
+                        rawSetter.invokeExact(bean, value);
+                    }
+                }
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        /*
+         * Empty collections are not created, an existing collection is updated in place.
+         */
+        private void setCollection(Object bean, Object value) throws Throwable {
+            List<Object> current = (List<Object>) (Object) raw.invokeExact(bean);
+            if (isEmpty(value)) {
+                if (!isEmpty(current)) {
+                    current.clear();
+                }
+            } else if (setter != null) {
+                setter.invokeExact(bean, value);
+            } else if (current != null) {
+                current.clear();
+                current.addAll((List<?>) value);
+            } else {
+                rawSetter.invokeExact(bean, (Object) FXCollections.observableArrayList((List<?>) value));
+            }
+        }
+
+        boolean equals(Object a, Object b) {
+            if (collection) {
+                return isEmpty(a) ? isEmpty(b) : a.equals(b);
+            }
+            return Objects.equals(a, b);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.dlsc.profiling;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares a candidate {@link BenchmarkRun} against a baseline and flags time or memory
+ * regressions per strategy and count. A cell is only reported as a regression if the
+ * candidate mean exceeds the baseline mean by more than the threshold and the 95%
+ * confidence intervals of both runs do not overlap. Runs with a single sample per cell
+ * (no repeated forks) fall back to the threshold alone.
+ * <p>
+ * Usage:
+ * <pre>
+ *     BenchmarkComparison [--dir results] [--threshold 10] [--memory-threshold 5] [baseline [candidate]]
+ * </pre>
+ * The baseline defaults to the previous run and the candidate to the latest run in the
+ * results directory. To gate against a fixed reference, pin a baseline with
+ * <code>BenchmarkRunner --tag baseline</code> and pass <code>baseline</code> as the baseline,
+ * so a regressed run never becomes the reference of the next one. The exit code is 1 if a
+ * regression was found, so the command can be used to gate merges, and 2 for usage or I/O
+ * errors, or runs taken with different benchmark settings.
+ */
+public class BenchmarkComparison {
+
+    public static final int EXIT_REGRESSION = 1;
+    public static final int EXIT_ERROR = 2;
+
+    /**
+     * Durations below this many milliseconds are dominated by timer resolution and are not judged.
+     */
+    public static final long MIN_DURATION = 5;
+
+    /**
+     * The settings that change what is measured. Runs that differ in any of them are not comparable.
+     */
+    private static final String[] SETTINGS = { "accessProperties", "derivedValues", "skewedValues", "classHistograms", "isolate", "diagnostics" };
+
+    /**
+     * Two-sided 95% quantiles of Student's t distribution for 1 to 30 degrees of freedom.
+     */
+    private static final double[] T_95 = { 12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042 };
+
+    private final double timeThreshold;
+    private final double memoryThreshold;
+
+    /**
+     * @param timeThreshold The tolerated relative increase of the duration, e.g. 0.1 for 10%.
+     * @param memoryThreshold The tolerated relative increase of the memory, e.g. 0.05 for 5%.
+     */
+    public BenchmarkComparison(double timeThreshold, double memoryThreshold) {
+        this.timeThreshold = timeThreshold;
+        this.memoryThreshold = memoryThreshold;
+    }
+
+    /**
+     * Prints the comparison of every strategy and count contained in both runs.
+     * @param baseline The reference run.
+     * @param candidate The run to judge.
+     * @param out The stream to print the report to.
+     * @return The number of regressions found.
+     */
+    public int compare(BenchmarkRun baseline, BenchmarkRun candidate, PrintStream out) {
+        out.println("Baseline:  " + describe(baseline));
+        out.println("Candidate: " + describe(candidate));
+        if (!same(baseline, candidate, "java.vm.version", "cpu.model", "cpu.count", "jvm.args")) {
+            out.println("WARNING: the runs were taken on different JVMs or hardware");
+        }
+        out.println();
+        out.println(String.format("%-28s %10s %6s %22s %22s %9s", "Strategy", "Objects", "Metric", "Baseline", "Candidate", "Change"));
+
+        int regressions = 0;
+        for (String strategy : candidate.getStrategies()) {
+            for (int count : candidate.getCounts(strategy)) {
+                if (baseline.getDurations(strategy, count).isEmpty()) {
+                    continue;
+                }
+                if (compare(out, strategy, count, "time", baseline.getDurations(strategy, count), candidate.getDurations(strategy, count), timeThreshold, MIN_DURATION)) {
+                    regressions++;
+                }
+                if (compare(out, strategy, count, "mem", baseline.getMemory(strategy, count), candidate.getMemory(strategy, count), memoryThreshold, 1)) {
+                    regressions++;
+                }
+            }
+        }
+
+        out.println();
+        out.println(regressions == 0 ? "No regressions found" : regressions + " regression(s) found");
+        return regressions;
+    }
+
+    private boolean compare(PrintStream out, String strategy, int count, String metric, List<Long> baselineSamples, List<Long> candidateSamples, double threshold, long minimum) {
+        Statistics base = new Statistics(baselineSamples);
+        Statistics cand = new Statistics(candidateSamples);
+
+        boolean judged = base.mean >= minimum;
+        double change = judged ? cand.mean / base.mean - 1 : 0;
+        boolean significant = base.count < 2 || cand.count < 2 || cand.lower() > base.upper();
+        boolean regression = judged && change > threshold && significant;
+
+        out.println(String.format("%-28s %10d %6s %22s %22s %9s%s", strategy, count, metric, base, cand,
+                judged ? String.format("%+.1f%%", change * 100) : "n/a", regression ? "  REGRESSION" : ""));
+        return regression;
+    }
+
+    /**
+     * @param baseline The reference run.
+     * @param candidate The run to judge.
+     * @return The benchmark settings that differ between the runs, e.g. "derivedValues (false/true)".
+     */
+    public static List<String> getDifferentSettings(BenchmarkRun baseline, BenchmarkRun candidate) {
+        List<String> different = new ArrayList<>();
+        for (String key : SETTINGS) {
+            // runs stored before a setting existed ran without it
+            String base = baseline.getMetadata(key) == null ? "false" : baseline.getMetadata(key);
+            String cand = candidate.getMetadata(key) == null ? "false" : candidate.getMetadata(key);
+            if (!base.equals(cand)) {
+                different.add(key + " (" + base + "/" + cand + ")");
+            }
+        }
+        return different;
+    }
+
+    private static boolean same(BenchmarkRun baseline, BenchmarkRun candidate, String... keys) {
+        for (String key : keys) {
+            String value = baseline.getMetadata(key);
+            if (value == null ? candidate.getMetadata(key) != null : !value.equals(candidate.getMetadata(key))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String describe(BenchmarkRun run) {
+        return run.getTimestamp() + " (" + run.getMetadata("java.vm.name") + " " + run.getMetadata("java.version")
+                + ", " + run.getMetadata("cpu.count") + " x " + run.getMetadata("cpu.model") + ")";
+    }
+
+    /**
+     * Mean and 95% confidence interval over the samples of one cell.
+     */
+    static final class Statistics {
+
+        final int count;
+        final double mean;
+        final double halfWidth;
+
+        Statistics(List<Long> samples) {
+            count = samples.size();
+            double sum = 0;
+            for (long sample : samples) {
+                sum += sample;
+            }
+            mean = count == 0 ? 0 : sum / count;
+
+            if (count < 2) {
+                halfWidth = 0;
+            } else {
+                double squares = 0;
+                for (long sample : samples) {
+                    squares += (sample - mean) * (sample - mean);
+                }
+                double deviation = Math.sqrt(squares / (count - 1));
+                int degrees = count - 1;
+                double t = degrees <= T_95.length ? T_95[degrees - 1] : 1.96;
+                halfWidth = t * deviation / Math.sqrt(count);
+            }
+        }
+
+        double lower() {
+            return mean - halfWidth;
+        }
+
+        double upper() {
+            return mean + halfWidth;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1f +/- %.1f (n=%d)", mean, halfWidth, count);
+        }
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Runs the comparison like {@link #main(String[])}, but without exiting the JVM.
+     * @param args The command line arguments.
+     * @return The exit code.
+     */
+    public static int run(String[] args) {
+        String directory = BenchmarkStore.DEFAULT_DIRECTORY;
+        double timeThreshold = 0.10;
+        double memoryThreshold = 0.05;
+        String baseline = BenchmarkStore.PREVIOUS;
+        String candidate = BenchmarkStore.LATEST;
+
+        int positional = 0;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--dir":
+                        directory = args[++i];
+                        break;
+                    case "--threshold":
+                        timeThreshold = Double.parseDouble(args[++i]) / 100;
+                        break;
+                    case "--memory-threshold":
+                        memoryThreshold = Double.parseDouble(args[++i]) / 100;
+                        break;
+                    default:
+                        if (positional == 0) {
+                            baseline = args[i];
+                        } else if (positional == 1) {
+                            candidate = args[i];
+                        } else {
+                            throw new IllegalArgumentException("Unexpected argument " + args[i]);
+                        }
+                        positional++;
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: BenchmarkComparison [--dir results] [--threshold 10] [--memory-threshold 5] [baseline [candidate]]");
+            return EXIT_ERROR;
+        }
+
+        BenchmarkStore store = new BenchmarkStore(Paths.get(directory));
+        try {
+            BenchmarkRun baselineRun = store.load(baseline);
+            BenchmarkRun candidateRun = store.load(candidate);
+            List<String> settings = getDifferentSettings(baselineRun, candidateRun);
+            if (!settings.isEmpty()) {
+                System.err.println("The runs were taken with different benchmark settings: " + String.join(", ", settings));
+                return EXIT_ERROR;
+            }
+            int regressions = new BenchmarkComparison(timeThreshold, memoryThreshold).compare(baselineRun, candidateRun, System.out);
+            return regressions == 0 ? 0 : EXIT_REGRESSION;
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            return EXIT_ERROR;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.dlsc.profiling;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.RuntimeMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * The measurements of one benchmark run together with the JVM and hardware it ran on.
+ * Every (strategy, count) cell holds one sample per forked JVM, so that the
+ * {@link BenchmarkComparison} can tell real regressions from noise.
+ * <p>
+ * Runs are stored as plain properties files:
+ * <pre>
+ *     meta.java.version=1.8.0_121
+ *     time.EmployeeShadowFields.100000=12,11,13
+ *     mem.EmployeeShadowFields.100000=4800312,4800296,4800312
+ *     histo.EmployeeShadowFields.100000=2400000 100000 com.dlsc.profiling.EmployeeShadowFields|...
+ * </pre>
+ * The optional class histograms (bytes, instances and class name of the classes that grew
+ * the most) are the ones of the last fork.
+ */
+public class BenchmarkRun {
+
+    public static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private static final String META_PREFIX = "meta.";
+    private static final String TIME_PREFIX = "time.";
+    private static final String MEMORY_PREFIX = "mem.";
+    private static final String HISTOGRAM_PREFIX = "histo.";
+
+    private final Map<String, String> metadata = new TreeMap<>();
+
+    private final Map<String, Map<Integer, List<Long>>> durations = new TreeMap<>();
+    private final Map<String, Map<Integer, List<Long>>> memory = new TreeMap<>();
+    private final Map<String, Map<Integer, List<ClassHistogram.Entry>>> histograms = new TreeMap<>();
+
+    /**
+     * Creates a new run and records the current JVM and hardware.
+     * @param forkArguments The JVM arguments used to launch the forked JVMs.
+     * @return A run without samples.
+     */
+    public static BenchmarkRun create(List<String> forkArguments) {
+        BenchmarkRun run = new BenchmarkRun();
+        RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+
+        run.setMetadata("timestamp", LocalDateTime.now().format(TIMESTAMP_FORMAT));
+        run.setMetadata("java.version", System.getProperty("java.version"));
+        run.setMetadata("java.vendor", System.getProperty("java.vendor"));
+        run.setMetadata("java.vm.name", runtime.getVmName());
+        run.setMetadata("java.vm.version", runtime.getVmVersion());
+        run.setMetadata("jvm.args", String.join(" ", forkArguments));
+        run.setMetadata("os.name", os.getName());
+        run.setMetadata("os.arch", os.getArch());
+        run.setMetadata("os.version", os.getVersion());
+        run.setMetadata("cpu.count", Integer.toString(os.getAvailableProcessors()));
+        run.setMetadata("cpu.model", readCpuModel());
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            run.setMetadata("memory.physical", Long.toString(((com.sun.management.OperatingSystemMXBean) os).getTotalPhysicalMemorySize()));
+        }
+        return run;
+    }
+
+    private static String readCpuModel() {
+        Path cpuInfo = Paths.get("/proc/cpuinfo");
+        if (Files.isReadable(cpuInfo)) {
+            try {
+                for (String line : Files.readAllLines(cpuInfo, StandardCharsets.UTF_8)) {
+                    if (line.startsWith("model name")) {
+                        return line.substring(line.indexOf(':') + 1).trim();
+                    }
+                }
+            } catch (IOException e) {
+                // fall through, the model is informational only
+            }
+        }
+        return "unknown";
+    }
+
+    public final String getMetadata(String key) {
+        return metadata.get(key);
+    }
+
+    public final void setMetadata(String key, String value) {
+        metadata.put(key, value);
+    }
+
+    public final Map<String, String> getMetadata() {
+        return Collections.unmodifiableMap(metadata);
+    }
+
+    public final String getTimestamp() {
+        return getMetadata("timestamp");
+    }
+
+    public final void addDuration(String strategy, int count, long duration) {
+        samples(durations, strategy, count).add(duration);
+    }
+
+    public final void addMemory(String strategy, int count, long bytes) {
+        samples(memory, strategy, count).add(bytes);
+    }
+
+    public final void setHistogram(String strategy, int count, List<ClassHistogram.Entry> histogram) {
+        histograms.computeIfAbsent(strategy, key -> new TreeMap<>()).put(count, new ArrayList<>(histogram));
+    }
+
+    public final List<ClassHistogram.Entry> getHistogram(String strategy, int count) {
+        Map<Integer, List<ClassHistogram.Entry>> counts = histograms.get(strategy);
+        List<ClassHistogram.Entry> histogram = counts == null ? null : counts.get(count);
+        return histogram == null ? Collections.emptyList() : Collections.unmodifiableList(histogram);
+    }
+
+    public final List<Long> getDurations(String strategy, int count) {
+        return lookup(durations, strategy, count);
+    }
+
+    public final List<Long> getMemory(String strategy, int count) {
+        return lookup(memory, strategy, count);
+    }
+
+    public final List<String> getStrategies() {
+        return new ArrayList<>(durations.keySet());
+    }
+
+    public final List<Integer> getCounts(String strategy) {
+        Map<Integer, List<Long>> counts = durations.get(strategy);
+        return counts == null ? Collections.emptyList() : new ArrayList<>(counts.keySet());
+    }
+
+    private static List<Long> samples(Map<String, Map<Integer, List<Long>>> values, String strategy, int count) {
+        return values.computeIfAbsent(strategy, key -> new TreeMap<>()).computeIfAbsent(count, key -> new ArrayList<>());
+    }
+
+    private static List<Long> lookup(Map<String, Map<Integer, List<Long>>> values, String strategy, int count) {
+        Map<Integer, List<Long>> counts = values.get(strategy);
+        List<Long> samples = counts == null ? null : counts.get(count);
+        return samples == null ? Collections.emptyList() : Collections.unmodifiableList(samples);
+    }
+
+    /**
+     * @param file The file to write.
+     * @param options How to open the file, by default it is created or replaced.
+     * @throws IOException if the file can not be written.
+     */
+    public void save(Path file, OpenOption... options) throws IOException {
+        Properties properties = new Properties();
+        metadata.forEach((key, value) -> properties.setProperty(META_PREFIX + key, value));
+        write(properties, TIME_PREFIX, durations);
+        write(properties, MEMORY_PREFIX, memory);
+        histograms.forEach((strategy, counts) -> counts.forEach((count, histogram) -> {
+            StringBuilder sb = new StringBuilder();
+            for (ClassHistogram.Entry entry : histogram) {
+                if (sb.length() > 0) {
+                    sb.append('|');
+                }
+                sb.append(entry.getBytes()).append(' ').append(entry.getInstances()).append(' ').append(entry.getClassName());
+            }
+            properties.setProperty(HISTOGRAM_PREFIX + strategy + "." + count, sb.toString());
+        }));
+
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, options)) {
+            properties.store(writer, "Employee benchmark run");
+        }
+    }
+
+    public static BenchmarkRun load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+
+        BenchmarkRun run = new BenchmarkRun();
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key);
+            if (key.startsWith(META_PREFIX)) {
+                run.setMetadata(key.substring(META_PREFIX.length()), value);
+            } else if (key.startsWith(TIME_PREFIX)) {
+                read(run.durations, key.substring(TIME_PREFIX.length()), value);
+            } else if (key.startsWith(MEMORY_PREFIX)) {
+                read(run.memory, key.substring(MEMORY_PREFIX.length()), value);
+            } else if (key.startsWith(HISTOGRAM_PREFIX)) {
+                String cell = key.substring(HISTOGRAM_PREFIX.length());
+                int dot = cell.lastIndexOf('.');
+                List<ClassHistogram.Entry> histogram = new ArrayList<>();
+                for (String entry : value.split("\\|")) {
+                    String[] columns = entry.split(" ");
+                    if (columns.length == 3) {
+                        histogram.add(new ClassHistogram.Entry(columns[2], Long.parseLong(columns[1]), Long.parseLong(columns[0])));
+                    }
+                }
+                run.setHistogram(cell.substring(0, dot), Integer.parseInt(cell.substring(dot + 1)), histogram);
+            }
+        }
+        return run;
+    }
+
+    private static void write(Properties properties, String prefix, Map<String, Map<Integer, List<Long>>> values) {
+        values.forEach((strategy, counts) -> counts.forEach((count, samples) -> {
+            StringBuilder sb = new StringBuilder();
+            for (Long sample : samples) {
+                if (sb.length() > 0) {
+                    sb.append(',');
+                }
+                sb.append(sample);
+            }
+            properties.setProperty(prefix + strategy + "." + count, sb.toString());
+        }));
+    }
+
+    private static void read(Map<String, Map<Integer, List<Long>>> values, String key, String value) {
+        int dot = key.lastIndexOf('.');
+        String strategy = key.substring(0, dot);
+        int count = Integer.parseInt(key.substring(dot + 1));
+        List<Long> samples = samples(values, strategy, count);
+        for (String sample : value.split(",")) {
+            if (!sample.isEmpty()) {
+                samples.add(Long.valueOf(sample.trim()));
+            }
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package com.dlsc.profiling;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.dlsc.profiling.EmployeeProfiling.TestResult;
+
+/**
+ * Runs the {@link EmployeeBenchmark} sweep headless in a number of forked JVMs, stores
+ * the samples as a new {@link BenchmarkRun} and optionally compares it against the
+ * previous run.
+ * <p>
+ * Usage:
+ * <pre>
+ *     BenchmarkRunner [--forks 5] [--counts 1000,100000] [--properties] [--derived] [--skewed] [--histograms]
+ *                     [--isolate] [--diagnostics]
+ *                     [--dir results] [--tag baseline]    [--compare [--baseline previous]] [--threshold 10] [--memory-threshold 5]
+ * </pre>
+ * With <code>--isolate</code> every fork runs a single strategy, so no strategy is affected
+ * by the JIT decisions made for another one. With <code>--diagnostics</code> the forks log
+ * their JIT compilation, inlining and deoptimization events to a temporary file, which gets
+ * summarized per strategy in the {@link JitDiagnostics} and stored with the run. <code>--tag</code> additionally stores the
+ * run under a tag, which <code>--baseline</code> can refer to later. With <code>--compare</code>
+ * the run is compared against the baseline (the previous run by default) and the exit code
+ * is the one of the {@link BenchmarkComparison}.
+ */
+public class BenchmarkRunner {
+
+    private static final String FORK = "--fork";
+    private static final String RESULT = "RESULT";
+    private static final String HISTOGRAM = "HISTOGRAM";
+    private static final String ALL_STRATEGIES = "all";
+
+    private int forks = 5;
+    private String counts;
+    private boolean accessProperties;
+    private boolean derivedValues;
+    private boolean skewedValues;
+    private boolean classHistograms;
+    private boolean isolate;
+    private boolean diagnostics;
+    private String strategy;
+
+    public final void setForks(int forks) {
+        this.forks = forks;
+    }
+
+    public final void setCounts(String counts) {
+        this.counts = counts;
+    }
+
+    public final void setAccessProperties(boolean accessProperties) {
+        this.accessProperties = accessProperties;
+    }
+
+    public final void setDerivedValues(boolean derivedValues) {
+        this.derivedValues = derivedValues;
+    }
+
+    public final void setSkewedValues(boolean skewedValues) {
+        this.skewedValues = skewedValues;
+    }
+
+    public final void setClassHistograms(boolean classHistograms) {
+        this.classHistograms = classHistograms;
+    }
+
+    /**
+     * @param isolate true to launch a separate JVM for every strategy.
+     */
+    public final void setIsolate(boolean isolate) {
+        this.isolate = isolate;
+    }
+
+    /**
+     * @param diagnostics true to collect the JIT inlining and deoptimization diagnostics of the forks.
+     */
+    public final void setDiagnostics(boolean diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * @param strategy The simple name of the only employee class tested by a fork, or null for all.
+     */
+    public final void setStrategy(String strategy) {
+        this.strategy = strategy;
+    }
+
+    public BenchmarkRun run() throws IOException, InterruptedException {
+        List<String> jvmArguments = forkArguments();
+        BenchmarkRun run = BenchmarkRun.create(jvmArguments);
+        run.setMetadata("forks", Integer.toString(forks));
+        run.setMetadata("accessProperties", Boolean.toString(accessProperties));
+        run.setMetadata("derivedValues", Boolean.toString(derivedValues));
+        run.setMetadata("skewedValues", Boolean.toString(skewedValues));
+        run.setMetadata("classHistograms", Boolean.toString(classHistograms));
+        run.setMetadata("isolate", Boolean.toString(isolate));
+        run.setMetadata("diagnostics", Boolean.toString(diagnostics));
+
+        List<String> strategies = new ArrayList<>();
+        if (isolate) {
+            for (Class<? extends EmployeeIF> type : new EmployeeBenchmark().getTestClasses()) {
+                strategies.add(type.getSimpleName());
+            }
+        } else {
+            strategies.add(null);
+        }
+
+        Map<String, JitDiagnostics> jitDiagnostics = new LinkedHashMap<>();
+        for (int fork = 1; fork <= forks; fork++) {
+            for (String forkStrategy : strategies) {
+                System.out.println("Fork " + fork + " of " + forks + (forkStrategy == null ? "" : ", " + forkStrategy));
+                JitDiagnostics forkDiagnostics = runFork(jvmArguments, run, forkStrategy);
+                if (forkDiagnostics != null) {
+                    jitDiagnostics.computeIfAbsent(forkStrategy == null ? ALL_STRATEGIES : forkStrategy, key -> new JitDiagnostics()).add(forkDiagnostics);
+                }
+            }
+        }
+
+        if (diagnostics) {
+            printDiagnostics(jitDiagnostics, run.getStrategies());
+            jitDiagnostics.forEach((key, value) -> run.setMetadata("diagnostics." + key, value.toString()));
+        }
+        return run;
+    }
+
+    /**
+     * Prints the calls into every employee class that C2 inlined and did not inline, and the
+     * deoptimizations of its code. When all strategies share a JVM, the virtual calls and the deoptimizations
+     * of the loops can not be told apart and are only printed once.
+     */
+    private void printDiagnostics(Map<String, JitDiagnostics> jitDiagnostics, List<String> strategies) {
+        System.out.println(String.format("%-26s %10s %12s %10s %10s %12s", "Strategy", "Inlined", "Not inlined", "Deopts", "Virtual", "Loop deopts"));
+        for (String name : strategies) {
+            JitDiagnostics forkDiagnostics = jitDiagnostics.get(isolate ? name : ALL_STRATEGIES);
+            if (forkDiagnostics == null) {
+                continue;
+            }
+            System.out.println(String.format("%-26s %10d %12d %10d %10s %12s", name, forkDiagnostics.getInlined(name), forkDiagnostics.getNotInlined(name),
+                    forkDiagnostics.getDeoptimizations(name), isolate ? Integer.toString(forkDiagnostics.getVirtualCalls()) : "",
+                    isolate ? Integer.toString(forkDiagnostics.getLoopDeoptimizations()) : ""));
+        }
+        JitDiagnostics shared = jitDiagnostics.get(ALL_STRATEGIES);
+        if (shared != null) {
+            System.out.println(String.format("%-26s %10s %12s %10s %10d %12d", "(all strategies)", "", "", "", shared.getVirtualCalls(), shared.getLoopDeoptimizations()));
+        }
+    }
+
+    /**
+     * @return The JIT diagnostics of the fork, or null if they are not collected.
+     */
+    private JitDiagnostics runFork(List<String> jvmArguments, BenchmarkRun run, String forkStrategy) throws IOException, InterruptedException {
+        Path logFile = diagnostics ? Files.createTempFile("benchmark-jit", ".log") : null;
+
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArguments);
+        if (logFile != null) {
+            command.addAll(JitDiagnostics.jvmArguments(logFile));
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(BenchmarkRunner.class.getName());
+        command.add(FORK);
+        if (counts != null) {
+            command.add("--counts");
+            command.add(counts);
+        }
+        if (accessProperties) {
+            command.add("--properties");
+        }
+        if (derivedValues) {
+            command.add("--derived");
+        }
+        if (skewedValues) {
+            command.add("--skewed");
+        }
+        if (classHistograms) {
+            command.add("--histograms");
+        }
+        if (forkStrategy != null) {
+            command.add("--strategy");
+            command.add(forkStrategy);
+        }
+
+        Map<String, List<ClassHistogram.Entry>> histograms = new LinkedHashMap<>();
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(RESULT)) {
+                    String[] columns = line.split("\t");
+                    int count = Integer.parseInt(columns[2]);
+                    run.addDuration(columns[1], count, Long.parseLong(columns[3]));
+                    run.addMemory(columns[1], count, Long.parseLong(columns[4]));
+                } else if (line.startsWith(HISTOGRAM)) {
+                    String[] columns = line.split("\t");
+                    int count = Integer.parseInt(columns[2]);
+                    histograms.computeIfAbsent(columns[1] + "\t" + count, key -> new ArrayList<>())
+                            .add(new ClassHistogram.Entry(columns[5], Long.parseLong(columns[4]), Long.parseLong(columns[3])));
+                } else {
+                    System.out.println("  " + line);
+                }
+            }
+        }
+
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            if (logFile != null) {
+                Files.delete(logFile);
+            }
+            throw new IOException("Forked benchmark JVM terminated with exit code " + exitCode);
+        }
+
+        histograms.forEach((cell, histogram) -> {
+            String[] columns = cell.split("\t");
+            run.setHistogram(columns[0], Integer.parseInt(columns[1]), histogram);
+        });
+
+        if (logFile == null) {
+            return null;
+        }
+        try {
+            return JitDiagnostics.read(logFile);
+        } finally {
+            Files.delete(logFile);
+        }
+    }
+
+    /**
+     * The forked JVMs use the heap and system property settings of this JVM, but no
+     * agents or debugger options.
+     */
+    private static List<String> forkArguments() {
+        List<String> arguments = new ArrayList<>();
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if ((argument.startsWith("-X") && !argument.startsWith("-Xrunjdwp") && !argument.startsWith("-Xdebug")) || argument.startsWith("-D")) {
+                arguments.add(argument);
+            }
+        }
+        return arguments;
+    }
+
+    private static int[] parseCounts(String counts) {
+        if (counts == null) {
+            return EmployeeBenchmark.COUNTS;
+        }
+        String[] values = counts.split(",");
+        int[] result = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = Integer.parseInt(values[i].trim());
+        }
+        return result;
+    }
+
+    /**
+     * Executed inside a forked JVM: runs the sweep once and prints one line per cell.
+     */
+    private static void fork(BenchmarkRunner runner) {
+        EmployeeBenchmark benchmark = new EmployeeBenchmark();
+        benchmark.setDerivedValues(runner.derivedValues);
+        benchmark.setSkewedValues(runner.skewedValues);
+        benchmark.setClassHistograms(runner.classHistograms);
+        Collection<Class<? extends EmployeeIF>> types = runner.strategy == null ? benchmark.getTestClasses()
+                : Collections.singletonList(benchmark.getTestClass(runner.strategy));
+        for (int count : parseCounts(runner.counts)) {
+            TestResult result = new TestResult();
+            result.setCount(count);
+            result.setAccessProperties(runner.accessProperties);
+            for (Class<? extends EmployeeIF> type : types) {
+                benchmark.test(count, runner.accessProperties, result, type);
+            }
+            for (Class<? extends EmployeeIF> type : types) {
+                System.out.println(RESULT + "\t" + type.getSimpleName() + "\t" + count + "\t" + result.getDuration(type) + "\t" + result.getMemory(type));
+                for (ClassHistogram.Entry entry : result.getHistogram(type)) {
+                    System.out.println(HISTOGRAM + "\t" + type.getSimpleName() + "\t" + count + "\t" + entry.getBytes() + "\t" + entry.getInstances() + "\t" + entry.getClassName());
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        boolean fork = false;
+        boolean compare = false;
+        String directory = BenchmarkStore.DEFAULT_DIRECTORY;
+        String tag = null;
+        String baseline = BenchmarkStore.PREVIOUS;
+        List<String> comparisonArguments = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case FORK:
+                    fork = true;
+                    break;
+                case "--forks":
+                    runner.setForks(Integer.parseInt(args[++i]));
+                    break;
+                case "--counts":
+                    runner.setCounts(args[++i]);
+                    break;
+                case "--properties":
+                    runner.setAccessProperties(true);
+                    break;
+                case "--derived":
+                    runner.setDerivedValues(true);
+                    break;
+                case "--skewed":
+                    runner.setSkewedValues(true);
+                    break;
+                case "--histograms":
+                    runner.setClassHistograms(true);
+                    break;
+                case "--isolate":
+                    runner.setIsolate(true);
+                    break;
+                case "--diagnostics":
+                    runner.setDiagnostics(true);
+                    break;
+                case "--strategy":
+                    runner.setStrategy(args[++i]);
+                    break;
+                case "--dir":
+                    directory = args[++i];
+                    break;
+                case "--tag":
+                    tag = args[++i];
+                    break;
+                case "--compare":
+                    compare = true;
+                    break;
+                case "--baseline":
+                    baseline = args[++i];
+                    break;
+                case "--threshold":
+                case "--memory-threshold":
+                    comparisonArguments.add(args[i]);
+                    comparisonArguments.add(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unexpected argument " + args[i]);
+                    System.err.println("Usage: BenchmarkRunner [--forks 5] [--counts 1000,100000] [--properties] [--derived] [--skewed] [--histograms] [--isolate] [--diagnostics] [--dir results] [--tag baseline] [--compare [--baseline previous]] [--threshold 10] [--memory-threshold 5]");
+                    System.exit(BenchmarkComparison.EXIT_ERROR);
+            }
+        }
+
+        if (fork) {
+            fork(runner);
+            return;
+        }
+
+        BenchmarkStore store = new BenchmarkStore(Paths.get(directory));
+        Path file = store.save(runner.run());
+        System.out.println("Stored results in " + file.toAbsolutePath());
+
+        int exitCode = 0;
+        if (compare) {
+            if (BenchmarkStore.PREVIOUS.equals(baseline) && store.list().size() < 2) {
+                System.out.println("No previous run in " + store.getDirectory().toAbsolutePath() + " to compare against");
+            } else {
+                comparisonArguments.add(0, "--dir");
+                comparisonArguments.add(1, directory);
+                comparisonArguments.add(baseline);
+                comparisonArguments.add(file.toString());
+                exitCode = BenchmarkComparison.run(comparisonArguments.toArray(new String[comparisonArguments.size()]));
+            }
+        }
+
+        // a run that failed the comparison never becomes the tagged reference
+        if (tag != null && exitCode == 0) {
+            System.out.println("Tagged results as " + tag + " in " + store.tag(file.toString(), tag).toAbsolutePath());
+        }
+        if (exitCode != 0) {
+            System.exit(exitCode);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.dlsc.profiling;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A directory of timestamped {@link BenchmarkRun} files. Runs are named after the time
+ * they were taken, to the millisecond, so the natural file order is the order of the runs.
+ * A stored run is never overwritten by another one.
+ * <p>
+ * A run can also be stored under a tag, e.g. "baseline". Tagged copies are not part of the
+ * timestamped runs, so a pinned baseline stays the same however many runs follow.
+ */
+public class BenchmarkStore {
+
+    public static final String DEFAULT_DIRECTORY = "results";
+
+    public static final String LATEST = "latest";
+    public static final String PREVIOUS = "previous";
+
+    private static final String PREFIX = "run-";
+    private static final String TAG_PREFIX = "tag-";
+    private static final String SUFFIX = ".properties";
+
+    private final Path directory;
+
+    public BenchmarkStore(Path directory) {
+        this.directory = directory;
+    }
+
+    public final Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @param run The run to store.
+     * @return The run file.
+     * @throws FileAlreadyExistsException if a run with the same timestamp is stored already.
+     * @throws IOException if the run can not be written.
+     */
+    public Path save(BenchmarkRun run) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(PREFIX + run.getTimestamp() + SUFFIX);
+        run.save(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        return file;
+    }
+
+    /**
+     * Stores a copy of a run under a tag, replacing the run tagged before.
+     * @param reference The run to tag, see {@link #resolve(String)}.
+     * @param tag The tag.
+     * @return The tagged copy.
+     * @throws IOException if the run does not exist or can not be copied.
+     */
+    public Path tag(String reference, String tag) throws IOException {
+        Path source = resolve(reference);
+        Path file = directory.resolve(TAG_PREFIX + tag + SUFFIX);
+        if (!source.equals(file)) {
+            Files.createDirectories(directory);
+            Files.copy(source, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file;
+    }
+
+    /**
+     * Returns all stored runs, oldest first.
+     * @return The run files.
+     * @throws IOException if the directory can not be read.
+     */
+    public List<Path> list() throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+                stream.forEach(files::add);
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Loads a run by reference. The reference is either {@link #LATEST}, {@link #PREVIOUS}
+     * (the run before the latest one), a tag, a timestamp, or the path of a run file.
+     * @param reference The run to load.
+     * @return The loaded run.
+     * @throws IOException if the run does not exist or can not be read.
+     */
+    public BenchmarkRun load(String reference) throws IOException {
+        return BenchmarkRun.load(resolve(reference));
+    }
+
+    public Path resolve(String reference) throws IOException {
+        if (LATEST.equals(reference) || PREVIOUS.equals(reference)) {
+            List<Path> files = list();
+            int index = files.size() - (LATEST.equals(reference) ? 1 : 2);
+            if (index < 0) {
+                throw new IOException("Not enough runs stored in " + directory.toAbsolutePath() + " to resolve '" + reference + "'");
+            }
+            return files.get(index);
+        }
+
+        Path file = Paths.get(reference);
+        if (Files.exists(file)) {
+            return file;
+        }
+        file = directory.resolve(reference);
+        if (Files.exists(file)) {
+            return file;
+        }
+        file = directory.resolve(TAG_PREFIX + reference + SUFFIX);
+        if (Files.exists(file)) {
+            return file;
+        }
+        file = directory.resolve(PREFIX + reference + SUFFIX);
+        if (Files.exists(file)) {
+            return file;
+        }
+        throw new IOException("No benchmark run found for '" + reference + "'");
+    }
+}
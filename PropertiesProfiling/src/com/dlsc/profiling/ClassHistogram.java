@@ -0,0 +1,132 @@
+package com.dlsc.profiling;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The number of live instances and bytes per class, as reported by the
+ * <code>GC.class_histogram</code> diagnostic command of the HotSpot JVM. Diffing the
+ * histogram taken after a test against the one taken before shows which classes the
+ * memory of a strategy is spent on.
+ */
+public class ClassHistogram {
+
+    private static final String DIAGNOSTIC_COMMAND = "com.sun.management:type=DiagnosticCommand";
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /**
+     * Captures a histogram of the live objects. This triggers a full garbage collection.
+     * @return The histogram.
+     * @throws IllegalStateException if the JVM does not support the diagnostic command.
+     */
+    public static ClassHistogram capture() {
+        try {
+            Object histogram = ManagementFactory.getPlatformMBeanServer().invoke(new ObjectName(DIAGNOSTIC_COMMAND),
+                    "gcClassHistogram", new Object[] { new String[0] }, new String[] { String[].class.getName() });
+            return parse((String) histogram);
+        } catch (JMException e) {
+            throw new IllegalStateException("Class histograms are not supported by this JVM", e);
+        }
+    }
+
+    /**
+     * Parses the output of the diagnostic command, e.g.
+     * <pre>
+     *  num     #instances         #bytes  class name
+     * ----------------------------------------------
+     *    1:         20000         480000  java.lang.String
+     *    2:         10000         400000  com.dlsc.profiling.Employee
+     * </pre>
+     * Module information following the class name (Java 9 and later) is removed.
+     * @param text The histogram as printed by the diagnostic command.
+     * @return The histogram.
+     */
+    static ClassHistogram parse(String text) {
+        ClassHistogram histogram = new ClassHistogram();
+        for (String line : text.split("\n")) {
+            String[] columns = line.trim().split("\\s+");
+            if (columns.length < 4 || !columns[0].endsWith(":")) {
+                continue;
+            }
+            histogram.add(columns[3], Long.parseLong(columns[1]), Long.parseLong(columns[2]));
+        }
+        return histogram;
+    }
+
+    private void add(String className, long instances, long bytes) {
+        Entry entry = entries.get(className);
+        if (entry == null) {
+            entries.put(className, new Entry(className, instances, bytes));
+        } else {
+            entries.put(className, new Entry(className, entry.instances + instances, entry.bytes + bytes));
+        }
+    }
+
+    /**
+     * @param baseline The histogram taken before.
+     * @return A histogram with the growth of every class since the baseline.
+     */
+    public ClassHistogram diff(ClassHistogram baseline) {
+        ClassHistogram diff = new ClassHistogram();
+        for (Entry entry : entries.values()) {
+            diff.add(entry.className, entry.instances, entry.bytes);
+        }
+        for (Entry entry : baseline.entries.values()) {
+            diff.add(entry.className, -entry.instances, -entry.bytes);
+        }
+        return diff;
+    }
+
+    /**
+     * @param count The maximum number of classes.
+     * @return The classes that grew the most, in bytes.
+     */
+    public List<Entry> top(int count) {
+        List<Entry> top = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.bytes > 0) {
+                top.add(entry);
+            }
+        }
+        Collections.sort(top, (a, b) -> Long.compare(b.bytes, a.bytes));
+        return top.size() > count ? new ArrayList<>(top.subList(0, count)) : top;
+    }
+
+    public static final class Entry {
+
+        final String className;
+        final long instances;
+        final long bytes;
+
+        public Entry(String className, long instances, long bytes) {
+            this.className = className;
+            this.instances = instances;
+            this.bytes = bytes;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public long getInstances() {
+            return instances;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%12s %10d  %s", EmployeeProfiling.humanReadableByteCount(bytes, true), instances, className);
+        }
+    }
+}
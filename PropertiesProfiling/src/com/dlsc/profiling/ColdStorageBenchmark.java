@@ -0,0 +1,173 @@
+package com.dlsc.profiling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Compares the {@link EmployeeShadowFields} with archived {@link EmployeeColdShadowFields},
+ * whose names and powers are stored off-heap. Every employee gets a unique name, and one out
+ * of ten gets unique powers, the others share the default powers. The benchmark reports the
+ * heap retained by the employees, the direct memory of the cold storage, the average pause
+ * of a full garbage collection while the employees are alive and the latency of reading
+ * the name and powers.
+ * <p>
+ * Usage:
+ * <pre>
+ *     ColdStorageBenchmark [--count 2000000] [--collections 5] [--iterations 5]
+ * </pre>
+ */
+public class ColdStorageBenchmark {
+
+    private int count = 2000000;
+    private int collections = 5;
+    private int iterations = 5;
+
+    /*
+     * Keeps the results alive, so the JIT can not remove the reads.
+     */
+    private long sink;
+
+    public final void setCount(int count) {
+        this.count = count;
+    }
+
+    /**
+     * @param collections The number of full garbage collections the pause time is averaged over.
+     */
+    public final void setCollections(int collections) {
+        this.collections = collections;
+    }
+
+    public final void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    /**
+     * @param archive true to archive every employee into an arena, which is closed after the test.
+     */
+    public ColdStorageResult test(String strategy, BiFunction<String, String, EmployeeIF> employeeCreator, boolean archive) {
+        try (OffHeapStrings arena = new OffHeapStrings()) {
+            return measure(strategy, employeeCreator, archive ? arena : null);
+        }
+    }
+
+    private ColdStorageResult measure(String strategy, BiFunction<String, String, EmployeeIF> employeeCreator, OffHeapStrings arena) {
+        ColdStorageResult result = new ColdStorageResult(strategy);
+
+        System.gc();
+        long usedSpace = EmployeeBenchmark.getUsedSpace();
+
+        List<EmployeeIF> employees = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            EmployeeIF employee = employeeCreator.apply("name " + i, i % 10 == 0 ? "powers " + i : new String("powers".toCharArray()));
+            if (arena != null) {
+                ((EmployeeColdShadowFields) employee).archive(arena);
+            }
+            employees.add(employee);
+        }
+
+        System.gc();
+        result.heap = EmployeeBenchmark.getUsedSpace() - usedSpace;
+        result.offHeap = arena == null ? 0 : arena.getUsedBytes();
+
+        long gcCount = OrgTreeBenchmark.getCollectionCount();
+        long gcTime = OrgTreeBenchmark.getCollectionTime();
+        for (int i = 0; i < collections; i++) {
+            System.gc();
+        }
+        long collected = OrgTreeBenchmark.getCollectionCount() - gcCount;
+        result.gcPause = collected == 0 ? 0 : (double) (OrgTreeBenchmark.getCollectionTime() - gcTime) / collected;
+
+        for (int i = 0; i <= iterations; i++) { // the first iteration warms up
+            long time = System.nanoTime();
+            for (EmployeeIF employee : employees) {
+                sink += employee.getName().length() + employee.getPowers().length();
+            }
+            if (i > 0) {
+                result.getNanos += System.nanoTime() - time;
+            }
+        }
+        result.gets = 2L * count * iterations;
+
+        sink += employees.size();
+        return result;
+    }
+
+    public static class ColdStorageResult {
+
+        final String strategy;
+
+        long heap;
+        long offHeap;
+        double gcPause;
+        long getNanos;
+        long gets;
+
+        ColdStorageResult(String strategy) {
+            this.strategy = strategy;
+        }
+
+        public final long getHeap() {
+            return heap;
+        }
+
+        public final long getOffHeap() {
+            return offHeap;
+        }
+
+        /**
+         * @return The average milliseconds of a full garbage collection.
+         */
+        public final double getGcPause() {
+            return gcPause;
+        }
+
+        /**
+         * @return The average nanoseconds of a single getter call.
+         */
+        public final double getGetterLatency() {
+            return gets == 0 ? 0 : (double) getNanos / gets;
+        }
+
+        static String header() {
+            return String.format("%-36s %12s %12s %10s %10s", "Strategy", "Heap", "Off-heap", "GC ms", "Get ns");
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-36s %12s %12s %10.1f %10.1f", strategy, EmployeeProfiling.humanReadableByteCount(heap, true),
+                    EmployeeProfiling.humanReadableByteCount(offHeap, true), gcPause, getGetterLatency());
+        }
+    }
+
+    public static void main(String[] args) {
+        ColdStorageBenchmark coldStorageBenchmark = new ColdStorageBenchmark();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--count":
+                    coldStorageBenchmark.setCount(Integer.parseInt(args[++i]));
+                    break;
+                case "--collections":
+                    coldStorageBenchmark.setCollections(Integer.parseInt(args[++i]));
+                    break;
+                case "--iterations":
+                    coldStorageBenchmark.setIterations(Integer.parseInt(args[++i]));
+                    break;
+                default:
+                    System.err.println("Unexpected argument " + args[i]);
+                    System.err.println("Usage: ColdStorageBenchmark [--count 2000000] [--collections 5] [--iterations 5]");
+                    System.exit(2);
+            }
+        }
+
+        System.out.println("Testing count = " + coldStorageBenchmark.count);
+        System.out.println(ColdStorageResult.header());
+        System.out.println(coldStorageBenchmark.test(EmployeeShadowFields.class.getSimpleName(),
+                (name, powers) -> new EmployeeShadowFields(name, powers), false));
+        System.out.println(coldStorageBenchmark.test(EmployeeColdShadowFields.class.getSimpleName(),
+                (name, powers) -> new EmployeeColdShadowFields(name, powers), false));
+        System.out.println(coldStorageBenchmark.test(EmployeeColdShadowFields.class.getSimpleName() + " (archived)",
+                (name, powers) -> new EmployeeColdShadowFields(name, powers), true));
+    }
+}
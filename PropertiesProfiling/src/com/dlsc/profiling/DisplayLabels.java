@@ -0,0 +1,28 @@
+package com.dlsc.profiling;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Computes the derived display label of an employee. All employee implementations use
+ * this class, so the number of computations shows how well a strategy caches the
+ * derived value.
+ */
+public final class DisplayLabels {
+
+    private static final AtomicLong computations = new AtomicLong();
+
+    private DisplayLabels() {}
+
+    public static String of(String name, String powers) {
+        computations.incrementAndGet();
+        return name + " (" + powers + ")";
+    }
+
+    public static long getComputations() {
+        return computations.get();
+    }
+
+    public static void resetComputations() {
+        computations.set(0);
+    }
+}
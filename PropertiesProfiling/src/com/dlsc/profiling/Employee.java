@@ -2,6 +2,8 @@ package com.dlsc.profiling;
 
 import java.util.List;
 
+import javafx.beans.binding.Bindings;
+import javafx.beans.binding.StringBinding;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
@@ -44,6 +46,22 @@ public class Employee implements EmployeeIF<Employee> {
 		this.powers.set(powers);
 	}
 
+	/*
+	 * Created on first use, so employees that never show a label cost the same as before.
+	 */
+	private transient StringBinding displayLabel;
+
+	public final String getDisplayLabel() {
+		return displayLabelProperty().get();
+	}
+
+	public final StringBinding displayLabelProperty() {
+		if (displayLabel == null) {
+			displayLabel = Bindings.createStringBinding(() -> DisplayLabels.of(getName(), getPowers()), name, powers);
+		}
+		return displayLabel;
+	}
+
 	private ObjectProperty<Employee> supervisor = new SimpleObjectProperty<>(this, "supervisor");
 
 	public final Employee getSupervisor() {
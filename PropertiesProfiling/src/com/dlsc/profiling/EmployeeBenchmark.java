@@ -0,0 +1,157 @@
+package com.dlsc.profiling;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+import com.dlsc.profiling.EmployeeProfiling.TestResult;
+
+/**
+ * Creates the employee objects of every test class and measures time and memory.
+ * The benchmark does not depend on a user interface, so the same measurements can
+ * be taken from the {@link EmployeeProfiling} application and the headless
+ * {@link BenchmarkRunner}.
+ */
+public class EmployeeBenchmark {
+
+    /**
+     * The number of classes reported per strategy when class histograms are enabled.
+     */
+    public static final int HISTOGRAM_CLASSES = 10;
+
+    public static final int[] COUNTS = new int[] { 1000, 2000, 3000, 4000, 5000, 6000, 7000, 8000, 9000, 10000, 100000, 1000000, 2000000 };
+
+    private final Map<Class<? extends EmployeeIF>, BiFunction<String, String, EmployeeIF>> testClasses = new LinkedHashMap<>();
+    {
+        testClasses.put(Employee.class, (name, powers) -> new Employee(name, powers));
+        testClasses.put(EmployeePropertyAccessor.class, (name, powers) -> new EmployeePropertyAccessor(name, powers));
+        testClasses.put(EmployeeShadowFields.class, (name, powers) -> new EmployeeShadowFields(name, powers));
+        testClasses.put(EmployeeObjectFields.class, (name, powers) -> new EmployeeObjectFields(name, powers));
+        testClasses.put(EmployeeFXObservable.class, (name, powers) -> new EmployeeFXObservable(name, powers));
+    }
+
+    /*
+     * One copy of the loop per test class, so no class pollutes the type profile of another.
+     */
+    private final Map<Class<? extends EmployeeIF>, EmployeeLoop> loops = new HashMap<>();
+    {
+        for (Class<? extends EmployeeIF> type : testClasses.keySet()) {
+            loops.put(type, EmployeeLoop.specialize());
+        }
+    }
+
+    private List<EmployeeIF> employees;
+
+    private boolean derivedValues;
+
+    private boolean classHistograms;
+
+    private boolean skewedValues;
+
+    public final boolean isSkewedValues() {
+        return skewedValues;
+    }
+
+    /**
+     * When set, nine out of ten employees get the common powers, but as separate String
+     * instances like values read from a file or a database. The others get unique powers.
+     * This shows the memory saved by strategies sharing a default value.
+     * @param skewedValues true to create employees with skewed powers.
+     */
+    public final void setSkewedValues(boolean skewedValues) {
+        this.skewedValues = skewedValues;
+    }
+
+    public final boolean isClassHistograms() {
+        return classHistograms;
+    }
+
+    /**
+     * When set, a class histogram is captured before and after every test, and the classes
+     * that grew the most are added to the result. Capturing a histogram is slow, as it
+     * triggers a full garbage collection.
+     * @param classHistograms true to capture class histograms.
+     */
+    public final void setClassHistograms(boolean classHistograms) {
+        this.classHistograms = classHistograms;
+    }
+
+    public final boolean isDerivedValues() {
+        return derivedValues;
+    }
+
+    /**
+     * When set, the display label of every employee gets read after creation. Then every
+     * other name is changed and all labels are read twice, which shows how often each
+     * strategy has to recompute the derived value.
+     * @param derivedValues true to exercise the derived display label.
+     */
+    public final void setDerivedValues(boolean derivedValues) {
+        this.derivedValues = derivedValues;
+    }
+
+    public final Set<Class<? extends EmployeeIF>> getTestClasses() {
+        return testClasses.keySet();
+    }
+
+    public final Class<? extends EmployeeIF> getTestClass(String simpleName) {
+        for (Class<? extends EmployeeIF> type : testClasses.keySet()) {
+            if (type.getSimpleName().equals(simpleName)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown test class " + simpleName);
+    }
+
+    public final BiFunction<String, String, EmployeeIF> getCreator(Class<? extends EmployeeIF> employeeType) {
+        return testClasses.get(employeeType);
+    }
+
+    public final EmployeeIF create(Class<? extends EmployeeIF> employeeType, String name, String powers) {
+        return testClasses.get(employeeType).apply(name, powers);
+    }
+
+    public void test(int count, boolean accessProperties, TestResult result, Class<? extends EmployeeIF> employeeType) {
+        BiFunction<String, String, EmployeeIF> employeeCreator = testClasses.get(employeeType);
+
+        employees = null;
+        ClassHistogram baseline = classHistograms ? captureBaseline() : null;
+        System.gc();
+        DisplayLabels.resetComputations();
+        long usedSpace = getUsedSpace();
+        long time = System.currentTimeMillis();
+
+        employees = loops.get(employeeType).build(employeeCreator, count, accessProperties, derivedValues, skewedValues);
+
+        result.setDuration(employeeType, System.currentTimeMillis() - time);
+        result.setRecomputes(employeeType, DisplayLabels.getComputations());
+
+        // measure memory
+        System.gc();
+        result.setMemory(employeeType, getUsedSpace() - usedSpace);
+
+        if (baseline != null) {
+            result.setHistogram(employeeType, ClassHistogram.capture().diff(baseline).top(HISTOGRAM_CLASSES));
+        }
+        employees = null;
+    }
+
+    /*
+     * The baseline stays alive until the histogram after the test is captured. It is taken
+     * twice, so it contains the objects of the first histogram, which are about the same as
+     * its own objects. This way the histograms themselves cancel out in the diff.
+     */
+    private static ClassHistogram captureBaseline() {
+        ClassHistogram first = ClassHistogram.capture();
+        synchronized (first) { // keeps the first histogram reachable during the second capture
+            return ClassHistogram.capture();
+        }
+    }
+
+    static long getUsedSpace() {
+        return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+    }
+}
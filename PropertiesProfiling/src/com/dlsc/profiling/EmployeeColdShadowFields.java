@@ -0,0 +1,239 @@
+package com.dlsc.profiling;
+
+
+import java.util.List;
+
+import javafx.beans.binding.Bindings;
+import javafx.beans.binding.StringBinding;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * Shadow fields with an optional cold storage. After {@link #archive(OffHeapStrings)} the
+ * values of the properties that have not been created yet are kept in an
+ * {@link OffHeapStrings} arena and only decoded when read. Setting a value or creating its
+ * property moves it back on-heap and frees it in the arena. The arena belongs to the caller,
+ * who must keep it open as long as the archived employees are in use.
+ */
+public class EmployeeColdShadowFields implements EmployeeIF<EmployeeColdShadowFields> {
+
+    /**
+     * Powers equal to the default share this instance and are never moved off-heap.
+     */
+    public static final String DEFAULT_POWERS = "powers";
+
+    public EmployeeColdShadowFields(String name, String powers) {
+        setName(name);
+        setPowers(powers);
+    }
+
+    /**
+     * The arena holding the archived values, null if no value is archived.
+     */
+    private transient OffHeapStrings coldStorage;
+
+    /**
+     * Moves the name and powers off-heap, unless their properties exist. Values archived in
+     * another arena are moved into the given one, which is how an arena gets compacted.
+     * @param arena The arena to store the values in.
+     */
+    public final void archive(OffHeapStrings arena) {
+    	if (coldStorage != arena) {
+    		unarchive();
+    	}
+    	if (name == null && _name != null) {
+    		_nameRef = arena.put(_name);
+    		_name = null;
+    	}
+    	if (powers == null && _powers != null && _powers != DEFAULT_POWERS) {
+    		_powersRef = arena.put(_powers);
+    		_powers = null;
+    	}
+    	coldStorage = isArchived() ? arena : null;
+    	_displayLabel = null;
+    }
+
+    /**
+     * Moves the archived values back on-heap.
+     */
+    public final void unarchive() {
+    	if (_nameRef != OffHeapStrings.NONE) {
+    		_name = coldStorage.get(_nameRef);
+    		freeName();
+    	}
+    	if (_powersRef != OffHeapStrings.NONE) {
+    		_powers = coldStorage.get(_powersRef);
+    		freePowers();
+    	}
+    }
+
+    public final boolean isArchived() {
+    	return _nameRef != OffHeapStrings.NONE || _powersRef != OffHeapStrings.NONE;
+    }
+
+    private void freeName() {
+    	if (_nameRef != OffHeapStrings.NONE) {
+    		coldStorage.free(_nameRef);
+    		_nameRef = OffHeapStrings.NONE;
+    		if (_powersRef == OffHeapStrings.NONE) {
+    			coldStorage = null;
+    		}
+    	}
+    }
+
+    private void freePowers() {
+    	if (_powersRef != OffHeapStrings.NONE) {
+    		coldStorage.free(_powersRef);
+    		_powersRef = OffHeapStrings.NONE;
+    		if (_nameRef == OffHeapStrings.NONE) {
+    			coldStorage = null;
+    		}
+    	}
+    }
+
+    private String _name;
+
+    private long _nameRef;
+
+    private StringProperty name;
+
+    public final String getName() {
+    	if (name != null) {
+    		return name.get();
+    	}
+    	return _nameRef == OffHeapStrings.NONE ? _name : coldStorage.get(_nameRef);
+    }
+
+    public final void setName(String name) {
+    	if (this.name == null) {
+    		_name = name;
+    		freeName();
+    		_displayLabel = null;
+    	} else {
+    		this.name.set(name);
+    	}
+    }
+
+    public final StringProperty nameProperty() {
+    	if (name == null) {
+    		name = new SimpleStringProperty(this, "name", getName()) {
+    			@Override
+    			protected void invalidated() {
+    				_displayLabel = null;
+    			}
+    		};
+			_name = null;
+			freeName();
+    	}
+
+    	return name;
+    }
+
+    private String _powers = DEFAULT_POWERS;
+
+    private long _powersRef;
+
+    private StringProperty powers;
+
+    public String getPowers() {
+    	if (powers != null) {
+    		return powers.get();
+    	}
+    	return _powersRef == OffHeapStrings.NONE ? _powers : coldStorage.get(_powersRef);
+    }
+
+    public final StringProperty powersProperty() {
+    	if (powers == null) {
+    		powers = new SimpleStringProperty(this, "powers", getPowers()) {
+    			@Override
+    			protected void invalidated() {
+    				_displayLabel = null;
+    			}
+    		};
+			_powers = null;
+			freePowers();
+    	}
+
+    	return powers;
+    }
+
+    public final void setPowers(String powers) {
+    	if (DEFAULT_POWERS.equals(powers)) {
+    		powers = DEFAULT_POWERS;
+    	}
+    	if (this.powers == null) {
+    		_powers = powers;
+    		freePowers();
+    		_displayLabel = null;
+    	} else {
+    		this.powers.set(powers);
+    	}
+    }
+
+    private transient String _displayLabel;
+
+    private transient StringBinding displayLabel;
+
+    public final String getDisplayLabel() {
+    	if (displayLabel != null) {
+    		return displayLabel.get();
+    	}
+    	if (_displayLabel == null) {
+    		_displayLabel = DisplayLabels.of(getName(), getPowers());
+    	}
+
+    	return _displayLabel;
+    }
+
+    public final StringBinding displayLabelProperty() {
+    	if (displayLabel == null) {
+    		displayLabel = Bindings.createStringBinding(() -> DisplayLabels.of(getName(), getPowers()), nameProperty(), powersProperty());
+    		_displayLabel = null;
+    	}
+
+    	return displayLabel;
+    }
+
+    private EmployeeColdShadowFields _supervisor;
+
+    private ObjectProperty<EmployeeColdShadowFields> supervisor;
+
+    public final EmployeeColdShadowFields getSupervisor() {
+    	return supervisor == null ? _supervisor : supervisor.get();
+    }
+
+    public final ObjectProperty<EmployeeColdShadowFields> supervisorProperty() {
+    	if (supervisor == null) {
+    		supervisor = new SimpleObjectProperty<>(this, "supervisor", _supervisor);
+			_supervisor = null;
+    	}
+
+    	return supervisor;
+    }
+
+    public final void setSupervisor(EmployeeColdShadowFields supervisor) {
+    	if (this.supervisor == null) {
+    		_supervisor = supervisor;
+    	} else {
+    		this.supervisor.set(supervisor);
+    	}
+    }
+
+    private ObservableList<EmployeeColdShadowFields> minions;
+
+    public final ObservableList<EmployeeColdShadowFields> getMinions() {
+    	if (minions == null) {
+    		minions = FXCollections.observableArrayList();
+    	}
+
+    	return minions;
+    }
+
+    public final void setMinions(List<EmployeeColdShadowFields> minions) {
+    	getMinions().setAll(minions);
+    }
+}
@@ -3,6 +3,8 @@ package com.dlsc.profiling;
 
 import java.util.List;
 
+import javafx.beans.binding.Bindings;
+import javafx.beans.binding.StringBinding;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
@@ -25,4 +27,21 @@ public class EmployeeFXObservable implements EmployeeIF<EmployeeFXObservable> {
         setPowers(powers);
     }
 
+    /*
+     * The setters are generated by the transformation, so there is no place to invalidate
+     * a cached label. It is computed on every call instead, unless the binding exists.
+     */
+    public String getDisplayLabel() {
+        return displayLabel == null ? DisplayLabels.of(getName(), getPowers()) : displayLabel.get();
+    }
+
+    private transient StringBinding displayLabel;
+
+    public StringBinding displayLabelProperty() {
+        if (displayLabel == null) {
+            displayLabel = Bindings.createStringBinding(() -> DisplayLabels.of(getName(), getPowers()), nameProperty(), powersProperty());
+        }
+        return displayLabel;
+    }
+
 }
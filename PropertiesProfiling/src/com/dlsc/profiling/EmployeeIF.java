@@ -1,5 +1,6 @@
 package com.dlsc.profiling;
 
+import javafx.beans.binding.StringBinding;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
@@ -30,4 +31,8 @@ public interface EmployeeIF<T extends EmployeeIF> {
 	public ObjectProperty<T> supervisorProperty();
 
 	public ObservableList<T> getMinions();
+
+	public String getDisplayLabel();
+
+	public StringBinding displayLabelProperty();
 }
\ No newline at end of file
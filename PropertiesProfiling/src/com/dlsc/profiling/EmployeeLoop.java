@@ -0,0 +1,34 @@
+package com.dlsc.profiling;
+
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * The measured loop of the {@link EmployeeBenchmark}: creates the employees and, depending
+ * on the options, accesses their properties and derived values.
+ * <p>
+ * When one loop runs all strategies, its call sites see every employee class and the lambda
+ * of every creator. After the second class they turn megamorphic, so the classes tested
+ * later run slower code than the first one. {@link #specialize()} therefore returns a
+ * separate copy of {@link SpecializedEmployeeLoop} per strategy, each defined by its own
+ * class loader from the same bytecode, with a type profile of its own.
+ */
+public interface EmployeeLoop {
+
+    /**
+     * @param employeeCreator Creates an employee from a name and powers.
+     * @param count The number of employees to create.
+     * @param accessProperties true to create the properties of every employee.
+     * @param derivedValues true to read, invalidate and read again the display labels.
+     * @param skewedValues true to create employees with skewed powers, see {@link EmployeeBenchmark#setSkewedValues(boolean)}.
+     * @return The employees.
+     */
+    List<EmployeeIF> build(BiFunction<String, String, EmployeeIF> employeeCreator, int count, boolean accessProperties, boolean derivedValues, boolean skewedValues);
+
+    /**
+     * @return A new loop, whose code is not shared with any other loop.
+     */
+    static EmployeeLoop specialize() {
+        return SpecializedCode.newInstance(SpecializedEmployeeLoop.class);
+    }
+}
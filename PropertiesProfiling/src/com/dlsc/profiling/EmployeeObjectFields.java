@@ -1,6 +1,8 @@
 package com.dlsc.profiling;
 
 
+import javafx.beans.binding.Bindings;
+import javafx.beans.binding.StringBinding;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
@@ -12,6 +14,8 @@ import java.util.List;
 
 public class EmployeeObjectFields implements EmployeeIF<EmployeeObjectFields> {
 
+    public static final String DEFAULT_POWERS = "powers";
+
     public EmployeeObjectFields(String name, String powers) {
         setName(name);
         setPowers(powers);
@@ -26,37 +30,78 @@ public class EmployeeObjectFields implements EmployeeIF<EmployeeObjectFields> {
     public final void setName(String name) {
     	if (this.name instanceof StringProperty)
             ((StringProperty)this.name).set(name);
-        else
+        else {
             this.name = name;
+            invalidateDisplayLabel();
+        }
     }
 
     public final StringProperty nameProperty() {
     	if (!(name instanceof StringProperty)) {
-    		name = new SimpleStringProperty(this, "name", (String)name);
+    		name = new SimpleStringProperty(this, "name", (String)name) {
+    			@Override
+    			protected void invalidated() {
+    				invalidateDisplayLabel();
+    			}
+    		};
     	}
     	return (StringProperty)name;
     }
 
-    private Object powers;
+    private Object powers = DEFAULT_POWERS;
 
     public String getPowers() {
         return powers instanceof StringProperty ? ((StringProperty)powers).get() : (String) powers;
     }
 
     public final void setPowers(String powers) {
+        if (DEFAULT_POWERS.equals(powers))
+            powers = DEFAULT_POWERS;
         if (this.powers instanceof StringProperty)
             ((StringProperty)this.powers).set(powers);
-        else
+        else {
             this.powers = powers;
+            invalidateDisplayLabel();
+        }
     }
 
     public final StringProperty powersProperty() {
         if (!(powers instanceof StringProperty)) {
-    		powers = new SimpleStringProperty(this, "powers", (String)powers);
+    		powers = new SimpleStringProperty(this, "powers", (String)powers) {
+    			@Override
+    			protected void invalidated() {
+    				invalidateDisplayLabel();
+    			}
+    		};
     	}
     	return (StringProperty)powers;
     }
 
+    private transient Object displayLabel;
+
+    public final String getDisplayLabel() {
+        if (displayLabel instanceof StringBinding) {
+            return ((StringBinding)displayLabel).get();
+        }
+        if (displayLabel == null) {
+            displayLabel = DisplayLabels.of(getName(), getPowers());
+        }
+        return (String) displayLabel;
+    }
+
+    public final StringBinding displayLabelProperty() {
+        if (!(displayLabel instanceof StringBinding)) {
+            displayLabel = Bindings.createStringBinding(() -> DisplayLabels.of(getName(), getPowers()), nameProperty(), powersProperty());
+        }
+        return (StringBinding)displayLabel;
+    }
+
+    private void invalidateDisplayLabel() {
+        if (!(displayLabel instanceof StringBinding)) {
+            displayLabel = null;
+        }
+    }
+
     private Object supervisor;
 
     public EmployeeObjectFields getSupervisor() {
@@ -1,57 +1,110 @@
 package com.dlsc.profiling;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.geometry.Insets;
+import javafx.geometry.Orientation;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.SplitPane;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
+import javafx.scene.control.TextArea;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.VBox;
+import javafx.scene.text.Font;
 import javafx.stage.Stage;
 
-import java.util.*;
-import java.util.function.BiFunction;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class EmployeeProfiling extends Application {
 
-    private final Map<Class<? extends EmployeeIF>, BiFunction<String, String, EmployeeIF>> testClasses = new LinkedHashMap<>();
-    {
-        testClasses.put(Employee.class, (name, powers) -> new Employee(name, powers));
-        testClasses.put(EmployeePropertyAccessor.class, (name, powers) -> new EmployeePropertyAccessor(name, powers));
-        testClasses.put(EmployeeShadowFields.class, (name, powers) -> new EmployeeShadowFields(name, powers));
-        testClasses.put(EmployeeObjectFields.class, (name, powers) -> new EmployeeObjectFields(name, powers));
-        testClasses.put(EmployeeFXObservable.class, (name, powers) -> new EmployeeFXObservable(name, powers));
-    }
-
-	private List<EmployeeIF> employees;
+    private final EmployeeBenchmark benchmark = new EmployeeBenchmark();
+
+    /*
+     * The tests run on their own thread, so neither the UI freezes nor does the pulse
+     * and rendering of the application thread interfere with the measurements.
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Employee Profiling");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private boolean running;
+    private volatile boolean cancelled;
+
+    /*
+     * Results of single (count, strategy) cells, published by the test thread and added to
+     * the table in batches. At most one update is scheduled on the application thread.
+     */
+    private final Queue<TestResult> pendingResults = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean updateScheduled = new AtomicBoolean();
+    private volatile double progress;
 
     private Button button;
+	private ProgressBar progressBar;
 	private TableView<TestResult> resultsTable;
 	private CheckBox propertiesCheckBox;
+	private CheckBox derivedCheckBox;
+	private CheckBox histogramsCheckBox;
+	private CheckBox skewedCheckBox;
+	private TextArea histogramsArea;
 
 	@Override
 	public void start(Stage primaryStage) throws Exception {
 		button = new Button("Start");
 		button.setMaxWidth(Double.MAX_VALUE);
-		button.setOnAction(evt -> runTests());
+		button.setOnAction(evt -> {
+			if (!running) {
+				runTests();
+			} else {
+				cancelTests();
+			}
+		});
+
+		progressBar = new ProgressBar(0);
+		progressBar.setMaxWidth(Double.MAX_VALUE);
 
 		propertiesCheckBox = new CheckBox("Access Properties (causes JavaFX Property creation)");
+		derivedCheckBox = new CheckBox("Read Derived Values (display labels, then change every other name)");
+		skewedCheckBox = new CheckBox("Skewed Values (90% common powers as separate strings, 10% unique)");
+		histogramsCheckBox = new CheckBox("Class Histograms (top classes per strategy, slow)");
 
 		VBox vbox = new VBox();
 		vbox.setSpacing(5);
 		vbox.setFillWidth(true);
-		vbox.getChildren().addAll(button, propertiesCheckBox);
+		vbox.getChildren().addAll(button, progressBar, propertiesCheckBox, derivedCheckBox, skewedCheckBox, histogramsCheckBox);
 		BorderPane.setMargin(vbox, new Insets(10));
 
 		BorderPane borderPane = new BorderPane();
 		borderPane.setTop(vbox);
 
 		resultsTable = createTableView();
-		borderPane.setCenter(resultsTable);
+		resultsTable.getSelectionModel().selectedItemProperty().addListener(it -> showHistograms());
+
+		histogramsArea = new TextArea();
+		histogramsArea.setEditable(false);
+		histogramsArea.setFont(Font.font("Monospaced", 12));
+		histogramsArea.setPromptText("Select a row to see the classes that grew the most per strategy");
+
+		SplitPane splitPane = new SplitPane(resultsTable, histogramsArea);
+		splitPane.setOrientation(Orientation.VERTICAL);
+		splitPane.setDividerPositions(0.6);
+		BorderPane.setMargin(splitPane, new Insets(10));
+		borderPane.setCenter(splitPane);
 
 		Scene scene = new Scene(borderPane);
 		primaryStage.setTitle("Employee Profiling");
@@ -62,6 +115,11 @@ public class EmployeeProfiling extends Application {
 		primaryStage.show();
 	}
 
+	@Override
+	public void stop() throws Exception {
+		executor.shutdownNow();
+	}
+
 	private TableView<TestResult> createTableView() {
 		TableView<TestResult> tableView = new TableView<EmployeeProfiling.TestResult>();
 
@@ -70,84 +128,145 @@ public class EmployeeProfiling extends Application {
         countColumn.setPrefWidth(80);
         tableView.getColumns().add(countColumn);
 
-        for (Class<? extends EmployeeIF> type : testClasses.keySet()) {
+        for (Class<? extends EmployeeIF> type : benchmark.getTestClasses()) {
             TableColumn<TestResult, String> groupingColumn = new TableColumn<>(type.getSimpleName());
             groupingColumn.setPrefWidth(220);
             tableView.getColumns().add(groupingColumn);
 
             TableColumn<TestResult, Long> durationColumn = new TableColumn<>("Time");
-            durationColumn.setCellValueFactory(param -> new ReadOnlyObjectWrapper<Long>(param.getValue().getDuration(type)));
+            durationColumn.setCellValueFactory(param -> new ReadOnlyObjectWrapper<Long>(param.getValue().hasResult(type) ? param.getValue().getDuration(type) : null));
             durationColumn.setPrefWidth(110);
             groupingColumn.getColumns().add(durationColumn);
 
             TableColumn<TestResult, String> memColumn = new TableColumn<>("Mem");
-            memColumn.setCellValueFactory(param -> new ReadOnlyObjectWrapper<String>(param.getValue().getNiceMemory(type)));
+            memColumn.setCellValueFactory(param -> new ReadOnlyObjectWrapper<String>(param.getValue().hasResult(type) ? param.getValue().getNiceMemory(type) : null));
             memColumn.setPrefWidth(110);
             groupingColumn.getColumns().add(memColumn);
+
+            TableColumn<TestResult, Long> recomputesColumn = new TableColumn<>("Recomp");
+            recomputesColumn.setCellValueFactory(param -> new ReadOnlyObjectWrapper<Long>(param.getValue().hasResult(type) ? param.getValue().getRecomputes(type) : null));
+            recomputesColumn.setPrefWidth(80);
+            groupingColumn.getColumns().add(recomputesColumn);
         }
 
-		BorderPane.setMargin(tableView, new Insets(10));
 		return tableView;
 	}
 
+	private void showHistograms() {
+		TestResult result = resultsTable.getSelectionModel().getSelectedItem();
+		if (result == null) {
+			histogramsArea.clear();
+			return;
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for (Class<? extends EmployeeIF> type : benchmark.getTestClasses()) {
+			List<ClassHistogram.Entry> histogram = result.getHistogram(type);
+			if (histogram.isEmpty()) {
+				continue;
+			}
+			sb.append(type.getSimpleName()).append(" (").append(result.getCount()).append(" objects)\n");
+			for (ClassHistogram.Entry entry : histogram) {
+				sb.append(entry).append('\n');
+			}
+			sb.append('\n');
+		}
+		histogramsArea.setText(sb.toString());
+	}
+
 	private void runTests() {
-		button.setDisable(true);
+		running = true;
+		cancelled = false;
+		button.setText("Cancel");
 		propertiesCheckBox.setDisable(true);
+		derivedCheckBox.setDisable(true);
+		skewedCheckBox.setDisable(true);
+		histogramsCheckBox.setDisable(true);
 
 		resultsTable.getItems().clear();
-
-		int[] counts = new int[] { 1000, 2000, 3000, 4000, 5000, 6000, 7000, 8000, 9000, 10000, 100000, 1000000, 2000000 };
-		for (int c : counts) {
-			System.out.println("Testing count = " + c);
-			TestResult result = test(c, propertiesCheckBox.isSelected());
-			resultsTable.getItems().add(result);
-		}
-
-		button.setDisable(false);
-		propertiesCheckBox.setDisable(false);
+		pendingResults.clear();
+		progress = 0;
+		progressBar.setProgress(0);
+		benchmark.setDerivedValues(derivedCheckBox.isSelected());
+		benchmark.setSkewedValues(skewedCheckBox.isSelected());
+		benchmark.setClassHistograms(histogramsCheckBox.isSelected());
+
+		boolean accessProperties = propertiesCheckBox.isSelected();
+		executor.execute(() -> runTests(accessProperties));
 	}
 
-	private TestResult test(int count, boolean accessProperties) {
-		TestResult result = new TestResult();
-		result.setCount(count);
-		result.setAccessProperties(accessProperties);
+	private void cancelTests() {
+		button.setDisable(true);
+		cancelled = true;
+	}
 
-        for (Map.Entry<Class<? extends EmployeeIF>, BiFunction<String, String, EmployeeIF>> entry : testClasses.entrySet()) {
-			employees = null;
-            test(count, accessProperties, result, entry.getKey(), entry.getValue());
-			employees = null;
+	/*
+	 * Runs on the test thread. Cancellation is checked between the cells, a cell that
+	 * is already running will be completed.
+	 */
+	private void runTests(boolean accessProperties) {
+		try {
+			int cells = EmployeeBenchmark.COUNTS.length * benchmark.getTestClasses().size();
+			int completed = 0;
+
+			for (int c : EmployeeBenchmark.COUNTS) {
+				System.out.println("Testing count = " + c);
+				for (Class<? extends EmployeeIF> type : benchmark.getTestClasses()) {
+					if (cancelled) {
+						System.out.println("Tests cancelled");
+						return;
+					}
+
+					TestResult result = new TestResult();
+					result.setCount(c);
+					result.setAccessProperties(accessProperties);
+					benchmark.test(c, accessProperties, result, type);
+
+					progress = (double) ++completed / cells;
+					publish(result);
+				}
+			}
+		} finally {
+			Platform.runLater(this::testsFinished);
 		}
+	}
 
-		return result;
+	private void publish(TestResult result) {
+		pendingResults.add(result);
+		if (updateScheduled.compareAndSet(false, true)) {
+			Platform.runLater(this::updateResults);
+		}
 	}
 
-    private void test(int count, boolean accessProperties, TestResult result, Class<? extends EmployeeIF> employeeType, BiFunction<String, String, EmployeeIF> employeeCreator) {
-        System.gc();
-        long usedSpace = getUsedSpace();
-        long time = System.currentTimeMillis();
-
-        employees = new ArrayList<>(count);
-
-        for (int i = 0; i < count; i++) {
-            EmployeeIF employee = employeeCreator.apply("name", "powers");
-            if (accessProperties) {
-                employee.nameProperty();
-                employee.powersProperty();
-                employee.supervisorProperty();
-                employee.getMinions();
-            }
-            employees.add(employee);
-        }
+	private void updateResults() {
+		updateScheduled.set(false);
+
+		List<TestResult> items = resultsTable.getItems();
+		TestResult result;
+		while ((result = pendingResults.poll()) != null) {
+			TestResult row = items.isEmpty() ? null : items.get(items.size() - 1);
+			if (row == null || row.getCount() != result.getCount()) {
+				items.add(result);
+			} else {
+				row.add(result);
+			}
+		}
 
-        result.setDuration(employeeType, System.currentTimeMillis() - time);
+		resultsTable.refresh();
+		progressBar.setProgress(progress);
+		showHistograms();
+	}
 
-        // measure memory
-        System.gc();
-        result.setMemory(employeeType, getUsedSpace() - usedSpace);
-    }
+	private void testsFinished() {
+		updateResults();
+		running = false;
 
-	private long getUsedSpace() {
-		return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+		button.setText("Start");
+		button.setDisable(false);
+		propertiesCheckBox.setDisable(false);
+		derivedCheckBox.setDisable(false);
+		skewedCheckBox.setDisable(false);
+		histogramsCheckBox.setDisable(false);
 	}
 
 	public static class TestResult {
@@ -157,6 +276,8 @@ public class EmployeeProfiling extends Application {
 
         Map<Class<? extends EmployeeIF>, Long> duration = new HashMap<>();
         Map<Class<? extends EmployeeIF>, Long> memory = new HashMap<>();
+        Map<Class<? extends EmployeeIF>, Long> recomputes = new HashMap<>();
+        Map<Class<? extends EmployeeIF>, List<ClassHistogram.Entry>> histograms = new HashMap<>();
 
 		public final int getCount() {
 			return count;
@@ -174,6 +295,21 @@ public class EmployeeProfiling extends Application {
 			this.accessProperties = accessProperties;
 		}
 
+		public final boolean hasResult(Class<? extends EmployeeIF> employeeType) {
+			return duration.containsKey(employeeType);
+		}
+
+		/**
+		 * Adds the measurements of another result for the same count.
+		 * @param result The result to add.
+		 */
+		public final void add(TestResult result) {
+			duration.putAll(result.duration);
+			memory.putAll(result.memory);
+			recomputes.putAll(result.recomputes);
+			histograms.putAll(result.histograms);
+		}
+
 		public final long getDuration(Class<? extends EmployeeIF> employeeType) {
 			return duration.get(employeeType).longValue();
 		}
@@ -190,6 +326,23 @@ public class EmployeeProfiling extends Application {
 			this.memory.put(employeeType, Long.valueOf(memory));
 		}
 
+		public final long getRecomputes(Class<? extends EmployeeIF> employeeType) {
+			return recomputes.get(employeeType).longValue();
+		}
+
+		public final void setRecomputes(Class<? extends EmployeeIF> employeeType, long recomputes) {
+			this.recomputes.put(employeeType, Long.valueOf(recomputes));
+		}
+
+		public final List<ClassHistogram.Entry> getHistogram(Class<? extends EmployeeIF> employeeType) {
+			List<ClassHistogram.Entry> histogram = histograms.get(employeeType);
+			return histogram == null ? Collections.emptyList() : histogram;
+		}
+
+		public final void setHistogram(Class<? extends EmployeeIF> employeeType, List<ClassHistogram.Entry> histogram) {
+			histograms.put(employeeType, histogram);
+		}
+
 		public final String getNiceMemory(Class<? extends EmployeeIF> employeeType) {
 			return humanReadableByteCount(getMemory(employeeType), true);
 		}
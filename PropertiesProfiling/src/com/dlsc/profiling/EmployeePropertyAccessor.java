@@ -1,6 +1,8 @@
 package com.dlsc.profiling;
 
 
+import javafx.beans.Observable;
+import javafx.beans.binding.StringBinding;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
@@ -49,10 +51,13 @@ import static com.dlsc.profiling.PropertyAccessors.*;
  */
 public class EmployeePropertyAccessor implements EmployeeIF<EmployeePropertyAccessor> {
 
+    public static final String DEFAULT_POWERS = "powers";
+
     private Object name;
-    private Object powers;
+    private Object powers = DEFAULT_POWERS;
     private Object supervisor;
     private List<EmployeePropertyAccessor> minions;
+    private transient Object displayLabel;
 
     public EmployeePropertyAccessor(String name, String powers) {
         setName(name);
@@ -60,9 +65,12 @@ public class EmployeePropertyAccessor implements EmployeeIF<EmployeePropertyAcce
     }
 
     public final String getName() {return getValue(name); }
-    public final void setName(String name) { this.name = setValue(this.name, name); }
+    public final void setName(String name) {
+        this.name = setValue(this.name, name);
+        displayLabel = invalidate(displayLabel);
+    }
     public final StringProperty nameProperty() {
-        name = refProperty(this, "name", name, SimpleStringProperty.class);
+        name = refProperty(this, "name", name, SimpleStringProperty.class, this::invalidateDisplayLabel);
         return cast(name);
     }
 
@@ -71,12 +79,31 @@ public class EmployeePropertyAccessor implements EmployeeIF<EmployeePropertyAcce
     }
 
     public final StringProperty powersProperty() {
-        powers = refProperty(this, "powers", powers, SimpleStringProperty.class);
+        powers = refProperty(this, "powers", powers, SimpleStringProperty.class, this::invalidateDisplayLabel);
         return cast(powers);
     }
 
     public final void setPowers(String powers) {
-        this.powers = setValue(this.powers, powers);
+        this.powers = setValue(this.powers, powers, DEFAULT_POWERS);
+        displayLabel = invalidate(displayLabel);
+    }
+
+    public final String getDisplayLabel() {
+        displayLabel = refDerived(displayLabel, this::computeDisplayLabel);
+        return getDerivedValue(displayLabel);
+    }
+
+    public final StringBinding displayLabelProperty() {
+        displayLabel = refBinding(displayLabel, StringBinding.class, this::computeDisplayLabel, nameProperty(), powersProperty());
+        return cast(displayLabel);
+    }
+
+    private String computeDisplayLabel() {
+        return DisplayLabels.of(getName(), getPowers());
+    }
+
+    private void invalidateDisplayLabel(Observable observable) {
+        displayLabel = invalidate(displayLabel);
     }
 
     public final EmployeePropertyAccessor getSupervisor() {
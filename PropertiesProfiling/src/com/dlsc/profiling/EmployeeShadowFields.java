@@ -3,6 +3,8 @@ package com.dlsc.profiling;
 
 import java.util.List;
 
+import javafx.beans.binding.Bindings;
+import javafx.beans.binding.StringBinding;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
@@ -12,6 +14,11 @@ import javafx.collections.ObservableList;
 
 public class EmployeeShadowFields implements EmployeeIF<EmployeeShadowFields> {
 
+    /**
+     * Powers equal to the default share this instance.
+     */
+    public static final String DEFAULT_POWERS = "powers";
+
     public EmployeeShadowFields(String name, String powers) {
         setName(name);
         setPowers(powers);
@@ -28,6 +35,7 @@ public class EmployeeShadowFields implements EmployeeIF<EmployeeShadowFields> {
     public final void setName(String name) {
     	if (this.name == null) {
     		_name = name;
+    		_displayLabel = null;
     	} else {
     		this.name.set(name);
     	}
@@ -35,14 +43,19 @@ public class EmployeeShadowFields implements EmployeeIF<EmployeeShadowFields> {
 
     public final StringProperty nameProperty() {
     	if (name == null) {
-    		name = new SimpleStringProperty(this, "name", _name);
+    		name = new SimpleStringProperty(this, "name", _name) {
+    			@Override
+    			protected void invalidated() {
+    				_displayLabel = null;
+    			}
+    		};
 			_name = null;
     	}
 
     	return name;
     }
 
-    private String _powers;
+    private String _powers = DEFAULT_POWERS;
 
     private StringProperty powers;
 
@@ -52,7 +65,12 @@ public class EmployeeShadowFields implements EmployeeIF<EmployeeShadowFields> {
 
     public final StringProperty powersProperty() {
     	if (powers == null) {
-    		powers = new SimpleStringProperty(this, "powers", _powers);
+    		powers = new SimpleStringProperty(this, "powers", _powers) {
+    			@Override
+    			protected void invalidated() {
+    				_displayLabel = null;
+    			}
+    		};
 			_powers = null;
     	}
 
@@ -60,13 +78,41 @@ public class EmployeeShadowFields implements EmployeeIF<EmployeeShadowFields> {
     }
 
     public final void setPowers(String powers) {
+    	if (DEFAULT_POWERS.equals(powers)) {
+    		powers = DEFAULT_POWERS;
+    	}
     	if (this.powers == null) {
     		_powers = powers;
+    		_displayLabel = null;
     	} else {
     		this.powers.set(powers);
     	}
     }
 
+    private transient String _displayLabel;
+
+    private transient StringBinding displayLabel;
+
+    public final String getDisplayLabel() {
+    	if (displayLabel != null) {
+    		return displayLabel.get();
+    	}
+    	if (_displayLabel == null) {
+    		_displayLabel = DisplayLabels.of(getName(), getPowers());
+    	}
+
+    	return _displayLabel;
+    }
+
+    public final StringBinding displayLabelProperty() {
+    	if (displayLabel == null) {
+    		displayLabel = Bindings.createStringBinding(() -> DisplayLabels.of(getName(), getPowers()), nameProperty(), powersProperty());
+    		_displayLabel = null;
+    	}
+
+    	return displayLabel;
+    }
+
     private EmployeeShadowFields _supervisor;
 
     private ObjectProperty<EmployeeShadowFields> supervisor;
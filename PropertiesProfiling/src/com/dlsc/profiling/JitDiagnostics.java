@@ -0,0 +1,282 @@
+package com.dlsc.profiling;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Summarizes the JIT log of a forked benchmark JVM. The JVM writes its compilation and
+ * inlining decisions and its deoptimizations into a log file (see {@link #jvmArguments(Path)}),
+ * so they can not get mixed up with the results printed on the standard output.
+ * <p>
+ * For every employee class it counts the calls into the class that the C2 compiler inlined or
+ * did not inline, and the deoptimizations of compiled code of the class. It also counts the
+ * calls through {@link EmployeeIF} that C2 compiled as virtual calls, because the profile of
+ * the call site showed more receiver classes than it can inline, and the deoptimizations in
+ * the benchmark loops themselves. The decisions of C1 are ignored: C1 never uses the receiver
+ * profile, so it reports every interface call as "no static binding", even in a fork that
+ * only ever sees one employee class.
+ * <p>
+ * The inlining decisions are read from the compile tasks of the compilation log. C2 tasks have
+ * no <code>level</code> attribute (or level 4), the classes and methods referenced by a task
+ * are declared before the calls that use them:
+ * <pre>
+ *     &lt;task compile_id='812' method='com.dlsc.profiling.SpecializedEmployeeLoop run ...' ...&gt;
+ *     &lt;klass id='1265' name='com.dlsc.profiling.EmployeeIF' flags='1537'/&gt;
+ *     &lt;method id='1267' holder='1265' name='getDisplayLabel' .../&gt;
+ *     &lt;call method='1267' count='9000' prof_factor='1.000000' virtual='1' inline='1'/&gt;
+ *     &lt;inline_fail reason='virtual call'/&gt;
+ *     ...
+ *     &lt;/task&gt;
+ * </pre>
+ * A deoptimization is an uncommon trap hit by a running thread, followed by the inlining
+ * chain of the trapping code, innermost method first:
+ * <pre>
+ *     &lt;uncommon_trap thread='3591' reason='unstable_if' action='reinterpret' ...&gt;
+ *     &lt;jvms bci='4' method='com.dlsc.profiling.EmployeeShadowFields setName (Ljava/lang/String;)V' .../&gt;
+ *     &lt;/uncommon_trap&gt;
+ * </pre>
+ * Methods being made not entrant are not counted, as this mostly happens when the code of
+ * a lower tier is replaced by better code.
+ */
+public class JitDiagnostics {
+
+    private static final String PACKAGE = EmployeeIF.class.getPackage().getName() + ".";
+
+    /**
+     * The template classes of the benchmark loops, see {@link SpecializedCode}.
+     */
+    private static final List<String> LOOPS = Arrays.asList(SpecializedEmployeeLoop.class.getSimpleName(), SpecializedOrgTreeLoop.class.getSimpleName());
+
+    private static final Pattern TASK_LEVEL = Pattern.compile(" level='(\\d)'");
+
+    private static final Pattern KLASS = Pattern.compile("<klass id='(\\d+)' name='([\\w.$/]+)'");
+
+    private static final Pattern METHOD = Pattern.compile("<method id='(\\d+)' holder='(\\d+)'");
+
+    private static final Pattern CALL = Pattern.compile("<call method='(\\d+)'");
+
+    private static final Pattern TRAP_METHOD = Pattern.compile("<jvms .*method='([\\w.$/]+) ");
+
+    private final Map<String, int[]> calls = new TreeMap<>();
+
+    private int virtualCalls;
+    private int loopDeoptimizations;
+
+    /*
+     * The classes of the inlining chain of the uncommon trap being read, null outside of a trap.
+     */
+    private List<String> trap;
+
+    /*
+     * The simple names of the classes and of the holders of the methods declared by the C2
+     * task being read, by id. Null outside of a C2 task.
+     */
+    private Map<String, String> klasses;
+    private Map<String, String> methods;
+
+    /*
+     * The simple name of the holder of the method called by the last call of the task,
+     * null after its inlining decision has been counted.
+     */
+    private String callee;
+
+    /**
+     * @param logFile The file the forked JVM writes its JIT log to.
+     * @return The arguments of the forked JVM.
+     */
+    public static List<String> jvmArguments(Path logFile) {
+        return Arrays.asList("-XX:+UnlockDiagnosticVMOptions", "-XX:+LogVMOutput", "-XX:-DisplayVMOutput", "-XX:LogFile=" + logFile,
+                "-XX:+LogCompilation");
+    }
+
+    /**
+     * @param logFile The JIT log of a forked JVM.
+     * @return The diagnostics of the fork.
+     * @throws IOException if the log can not be read.
+     */
+    public static JitDiagnostics read(Path logFile) throws IOException {
+        JitDiagnostics diagnostics = new JitDiagnostics();
+        try (BufferedReader reader = Files.newBufferedReader(logFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                diagnostics.accept(line);
+            }
+        }
+        return diagnostics;
+    }
+
+    /**
+     * @param line A line of the JIT log.
+     */
+    public void accept(String line) {
+        if (trap != null) {
+            Matcher matcher = TRAP_METHOD.matcher(line);
+            if (matcher.find()) {
+                trap.add(simpleName(matcher.group(1)));
+            } else if (line.startsWith("</uncommon_trap>")) {
+                countDeoptimization(trap);
+                trap = null;
+            }
+            return;
+        }
+        if (line.startsWith("<uncommon_trap thread=")) {
+            if (!line.endsWith("/>")) {
+                trap = new ArrayList<>();
+            }
+            return;
+        }
+
+        if (line.startsWith("<task ")) {
+            Matcher matcher = TASK_LEVEL.matcher(line);
+            if (!matcher.find() || matcher.group(1).equals("4")) {
+                klasses = new HashMap<>();
+                methods = new HashMap<>();
+            }
+            return;
+        }
+        if (klasses == null) {
+            return;
+        }
+        if (line.startsWith("</task>")) {
+            klasses = null;
+            methods = null;
+            callee = null;
+            return;
+        }
+
+        Matcher matcher = KLASS.matcher(line);
+        if (matcher.find()) {
+            klasses.put(matcher.group(1), simpleName(matcher.group(2)));
+            return;
+        }
+        matcher = METHOD.matcher(line);
+        if (matcher.find()) {
+            methods.put(matcher.group(1), klasses.get(matcher.group(2)));
+            return;
+        }
+        matcher = CALL.matcher(line);
+        if (matcher.find()) {
+            callee = methods.get(matcher.group(1));
+            return;
+        }
+        boolean inlined = line.startsWith("<inline_success");
+        if (callee != null && (inlined || line.startsWith("<inline_fail"))) {
+            if (EmployeeIF.class.getSimpleName().equals(callee)) {
+                if (!inlined) {
+                    virtualCalls++;
+                }
+            } else if (isEmployeeClass(callee)) {
+                counts(callee)[inlined ? 0 : 1]++;
+            }
+            callee = null;
+        }
+    }
+
+    /**
+     * Counts the deoptimization for the innermost employee class of the chain, else for the
+     * loops if the trap is in their code. Traps outside of both are ignored.
+     */
+    private void countDeoptimization(List<String> chain) {
+        for (String simpleName : chain) {
+            if (isEmployeeClass(simpleName)) {
+                counts(simpleName)[2]++;
+                return;
+            }
+        }
+        for (String simpleName : chain) {
+            if (LOOPS.contains(simpleName)) {
+                loopDeoptimizations++;
+                return;
+            }
+        }
+    }
+
+    private int[] counts(String simpleName) {
+        return calls.computeIfAbsent(simpleName, key -> new int[3]);
+    }
+
+    /**
+     * @return The simple name of a class of the benchmark package, else null.
+     */
+    private static String simpleName(String className) {
+        className = className.replace('/', '.');
+        return className.startsWith(PACKAGE) ? className.substring(PACKAGE.length()) : null;
+    }
+
+    private static boolean isEmployeeClass(String simpleName) {
+        return simpleName != null && simpleName.startsWith("Employee") && simpleName.indexOf('$') < 0 && !simpleName.equals(EmployeeIF.class.getSimpleName())
+                && !simpleName.equals(EmployeeLoop.class.getSimpleName()) && !simpleName.equals(EmployeeBenchmark.class.getSimpleName())
+                && !simpleName.equals(EmployeeProfiling.class.getSimpleName());
+    }
+
+    /**
+     * Adds the counts of another fork.
+     * @param other The diagnostics of the other fork.
+     */
+    public void add(JitDiagnostics other) {
+        other.calls.forEach((type, counts) -> {
+            int[] sum = counts(type);
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] += counts[i];
+            }
+        });
+        virtualCalls += other.virtualCalls;
+        loopDeoptimizations += other.loopDeoptimizations;
+    }
+
+    public final int getInlined(String strategy) {
+        int[] counts = calls.get(strategy);
+        return counts == null ? 0 : counts[0];
+    }
+
+    public final int getNotInlined(String strategy) {
+        int[] counts = calls.get(strategy);
+        return counts == null ? 0 : counts[1];
+    }
+
+    /**
+     * @param strategy The simple name of an employee class.
+     * @return The deoptimizations of compiled code of the class, including code inlined elsewhere.
+     */
+    public final int getDeoptimizations(String strategy) {
+        int[] counts = calls.get(strategy);
+        return counts == null ? 0 : counts[2];
+    }
+
+    /**
+     * @return The deoptimizations of the benchmark loops not caused by code of an employee class.
+     */
+    public final int getLoopDeoptimizations() {
+        return loopDeoptimizations;
+    }
+
+    /**
+     * @return The calls through {@link EmployeeIF} that C2 did not inline.
+     */
+    public final int getVirtualCalls() {
+        return virtualCalls;
+    }
+
+    /**
+     * @return The summary as stored in the {@link BenchmarkRun}, e.g.
+     * <code>loopDeopts=1 virtual=3 Employee=40/2/1</code> (inlined calls, not inlined calls and
+     * deoptimizations per class).
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("loopDeopts=").append(loopDeoptimizations).append(" virtual=").append(virtualCalls);
+        calls.forEach((type, counts) -> sb.append(' ').append(type).append('=').append(counts[0]).append('/').append(counts[1]).append('/').append(counts[2]));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,150 @@
+package com.dlsc.profiling;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An append-only arena of UTF-8 encoded strings outside of the Java heap. A stored string
+ * is referenced by a <code>long</code> handle, so it costs the garbage collector nothing: no
+ * <code>String</code> and no <code>byte[]</code> object needs to be traced or copied.
+ * The string is decoded again on every {@link #get(long)}.
+ * <p>
+ * The memory is allocated in direct buffers of {@link #CHUNK_SIZE} bytes. Strings that are
+ * no longer used can be {@link #free(long) freed}, but their bytes are only counted as
+ * garbage, not reused. The arena is owned by its creator, who releases all of its memory
+ * with {@link #close()}. To compact an arena, archive the values still in use into a new
+ * arena and close the old one, see {@link EmployeeColdShadowFields#archive(OffHeapStrings)}.
+ */
+public final class OffHeapStrings implements AutoCloseable {
+
+    /**
+     * The handle of no value. Also the default of a <code>long</code> field.
+     */
+    public static final long NONE = 0;
+
+    public static final int CHUNK_SIZE = 1 << 20;
+
+    private static final int LENGTH_BYTES = 4;
+
+    /*
+     * Replaced on every new chunk, so readers never need a lock. Null once closed.
+     */
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+
+    private long usedBytes;
+    private long garbageBytes;
+
+    /**
+     * @param value The string to store, may be null.
+     * @return The handle of the stored string, or {@link #NONE} for null.
+     * @throws IllegalStateException if the arena has been closed.
+     */
+    public synchronized long put(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int size = LENGTH_BYTES + bytes.length;
+
+        ByteBuffer[] current = getChunks();
+        ByteBuffer chunk = current.length == 0 ? null : current[current.length - 1];
+        if (chunk == null || chunk.remaining() < size) {
+            chunk = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, size));
+            ByteBuffer[] grown = new ByteBuffer[current.length + 1];
+            System.arraycopy(current, 0, grown, 0, current.length);
+            grown[current.length] = chunk;
+            current = grown;
+        }
+
+        int offset = chunk.position();
+        chunk.putInt(bytes.length);
+        chunk.put(bytes);
+        chunks = current;
+        usedBytes += size;
+
+        // chunk numbers start at 1, so no handle equals NONE
+        return ((long) current.length << 32) | offset;
+    }
+
+    /**
+     * @param handle A handle returned by {@link #put(String)}.
+     * @return The decoded string, or null for {@link #NONE}.
+     * @throws IllegalStateException if the arena has been closed.
+     */
+    public String get(long handle) {
+        if (handle == NONE) {
+            return null;
+        }
+        ByteBuffer chunk = getChunks()[(int) (handle >>> 32) - 1];
+        int offset = (int) handle;
+        byte[] bytes = new byte[chunk.getInt(offset)];
+        // a duplicate has its own position, so concurrent readers and put() do not interfere
+        ByteBuffer buffer = chunk.duplicate();
+        buffer.position(offset + LENGTH_BYTES);
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Marks a string as no longer used. Its bytes stay allocated until the arena is closed.
+     * Nothing happens once the arena has been closed.
+     * @param handle A handle returned by {@link #put(String)}, which must not be used afterwards.
+     */
+    public synchronized void free(long handle) {
+        ByteBuffer[] current = chunks;
+        if (handle != NONE && current != null) {
+            garbageBytes += LENGTH_BYTES + current[(int) (handle >>> 32) - 1].getInt((int) handle);
+        }
+    }
+
+    /**
+     * Releases the direct memory of the arena, once the buffers are garbage collected. The
+     * handles of the arena must not be used afterwards, reading them fails.
+     */
+    @Override
+    public synchronized void close() {
+        chunks = null;
+        usedBytes = 0;
+        garbageBytes = 0;
+    }
+
+    public boolean isClosed() {
+        return chunks == null;
+    }
+
+    private ByteBuffer[] getChunks() {
+        ByteBuffer[] current = chunks;
+        if (current == null) {
+            throw new IllegalStateException("The arena has been closed");
+        }
+        return current;
+    }
+
+    /**
+     * @return The bytes taken by the stored strings, including their lengths and the freed strings.
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * @return The bytes taken by the freed strings, which compacting the arena would save.
+     */
+    public synchronized long getGarbageBytes() {
+        return garbageBytes;
+    }
+
+    /**
+     * @return The bytes of direct memory allocated by the arena.
+     */
+    public long getAllocatedBytes() {
+        ByteBuffer[] current = chunks;
+        long bytes = 0;
+        if (current != null) {
+            for (ByteBuffer chunk : current) {
+                bytes += chunk.capacity();
+            }
+        }
+        return bytes;
+    }
+}
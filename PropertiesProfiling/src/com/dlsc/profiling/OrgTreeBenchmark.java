@@ -0,0 +1,268 @@
+package com.dlsc.profiling;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Builds organisation trees out of employees, linking every employee to its supervisor and
+ * adding it to the minions of the supervisor. Unlike the {@link EmployeeBenchmark}, which
+ * creates isolated employees, this exercises the references between the objects and the
+ * growth of the minion lists.
+ * <p>
+ * In a balanced tree every employee above the lowest level has <code>fanOut</code> minions.
+ * In a skewed tree the n-th minion of a supervisor (counting from 0) only gets
+ * <code>fanOut / (n + 1)</code> minions of its own, so a few large departments and many
+ * small ones are created.
+ * <p>
+ * Every class runs through its own copy of the tree code (see {@link OrgTreeLoop}), first
+ * for a number of warm-up iterations, then for the measured repetitions, so the results do
+ * not depend on the order the classes are tested in.
+ * <p>
+ * Usage:
+ * <pre>
+ *     OrgTreeBenchmark [--shape balanced|skewed] [--depth 6] [--fan-out 8] [--inflate 0.1] [--traversals 10] [--warmups 2] [--repetitions 5]
+ * </pre>
+ */
+public class OrgTreeBenchmark {
+
+    public enum Shape { BALANCED, SKEWED }
+
+    private final EmployeeBenchmark benchmark = new EmployeeBenchmark();
+
+    private Shape shape = Shape.BALANCED;
+    private int depth = 6;
+    private int fanOut = 8;
+    private double inflatedFraction = 0.1;
+    private int traversals = 10;
+    private int warmups = 2;
+    private int repetitions = 5;
+
+    /*
+     * Keeps the traversal results alive, so the JIT can not remove the traversals.
+     */
+    private long sink;
+
+    public final void setShape(Shape shape) {
+        this.shape = shape;
+    }
+
+    public final void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    public final void setFanOut(int fanOut) {
+        this.fanOut = fanOut;
+    }
+
+    /**
+     * @param inflatedFraction The fraction of employees whose supervisor property gets created.
+     */
+    public final void setInflatedFraction(double inflatedFraction) {
+        this.inflatedFraction = inflatedFraction;
+    }
+
+    public final void setTraversals(int traversals) {
+        this.traversals = traversals;
+    }
+
+    /**
+     * @param warmups The number of unmeasured iterations per class, so the JIT compiles its code first.
+     */
+    public final void setWarmups(int warmups) {
+        this.warmups = warmups;
+    }
+
+    /**
+     * @param repetitions The number of measured iterations per class.
+     */
+    public final void setRepetitions(int repetitions) {
+        this.repetitions = repetitions;
+    }
+
+    /**
+     * Runs the warm-up iterations and then the measured repetitions, each building a new tree
+     * and traversing it. The result holds the means over the measured repetitions.
+     */
+    public OrgTreeResult test(Class<? extends EmployeeIF> employeeType) {
+        OrgTreeResult result = new OrgTreeResult(employeeType);
+        OrgTreeLoop loop = OrgTreeLoop.specialize();
+
+        for (int i = 0; i < warmups; i++) {
+            run(loop, employeeType, new OrgTreeResult(employeeType));
+        }
+        for (int i = 0; i < repetitions; i++) {
+            run(loop, employeeType, result);
+        }
+
+        result.buildTime /= repetitions;
+        result.memory /= repetitions;
+        result.gcCount /= repetitions;
+        result.gcTime /= repetitions;
+        result.minionsThroughput /= repetitions;
+        result.supervisorsThroughput /= repetitions;
+        return result;
+    }
+
+    /**
+     * Builds and traverses one tree, adding the measurements to the result.
+     */
+    private void run(OrgTreeLoop loop, Class<? extends EmployeeIF> employeeType, OrgTreeResult result) {
+        System.gc();
+        long usedSpace = EmployeeBenchmark.getUsedSpace();
+        long gcCount = getCollectionCount();
+        long gcTime = getCollectionTime();
+        long time = System.nanoTime();
+
+        List<EmployeeIF> employees = loop.build(benchmark.getCreator(employeeType), shape == Shape.SKEWED, depth, fanOut, inflatedFraction);
+
+        result.buildTime += (System.nanoTime() - time) / 1000000;
+        result.gcCount += getCollectionCount() - gcCount;
+        result.gcTime += getCollectionTime() - gcTime;
+        result.employees = employees.size();
+
+        System.gc();
+        result.memory += EmployeeBenchmark.getUsedSpace() - usedSpace;
+
+        // the first pass creates the (empty) minion lists of the leaves for the lazy strategies
+        sink += loop.traverseMinions(employees.get(0));
+
+        time = System.nanoTime();
+        for (int i = 0; i < traversals; i++) {
+            sink += loop.traverseMinions(employees.get(0));
+        }
+        result.minionsThroughput += throughput(employees.size(), System.nanoTime() - time);
+
+        time = System.nanoTime();
+        for (int i = 0; i < traversals; i++) {
+            sink += loop.traverseSupervisors(employees);
+        }
+        result.supervisorsThroughput += throughput(employees.size(), System.nanoTime() - time);
+    }
+
+    private long throughput(int employees, long nanos) {
+        return nanos == 0 ? 0 : (long) employees * traversals * 1000000 / nanos;
+    }
+
+    static long getCollectionCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    static long getCollectionTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+
+    public static class OrgTreeResult {
+
+        final Class<? extends EmployeeIF> employeeType;
+
+        int employees;
+        long buildTime;
+        long memory;
+        long gcCount;
+        long gcTime;
+        long minionsThroughput;
+        long supervisorsThroughput;
+
+        OrgTreeResult(Class<? extends EmployeeIF> employeeType) {
+            this.employeeType = employeeType;
+        }
+
+        public final Class<? extends EmployeeIF> getEmployeeType() {
+            return employeeType;
+        }
+
+        public final int getEmployees() {
+            return employees;
+        }
+
+        public final long getBuildTime() {
+            return buildTime;
+        }
+
+        public final long getMemory() {
+            return memory;
+        }
+
+        public final long getGcCount() {
+            return gcCount;
+        }
+
+        public final long getGcTime() {
+            return gcTime;
+        }
+
+        /**
+         * @return Employees visited per millisecond walking down the minion lists.
+         */
+        public final long getMinionsThroughput() {
+            return minionsThroughput;
+        }
+
+        /**
+         * @return Employees per millisecond walking up the supervisor chains of all employees.
+         */
+        public final long getSupervisorsThroughput() {
+            return supervisorsThroughput;
+        }
+
+        static String header() {
+            return String.format("%-26s %10s %10s %12s %6s %8s %14s %14s", "Strategy", "Employees", "Build ms", "Mem", "GCs", "GC ms", "Minions/ms", "Chains/ms");
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-26s %10d %10d %12s %6d %8d %14d %14d", employeeType.getSimpleName(), employees, buildTime,
+                    EmployeeProfiling.humanReadableByteCount(memory, true), gcCount, gcTime, minionsThroughput, supervisorsThroughput);
+        }
+    }
+
+    public static void main(String[] args) {
+        OrgTreeBenchmark orgTreeBenchmark = new OrgTreeBenchmark();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--shape":
+                    orgTreeBenchmark.setShape(Shape.valueOf(args[++i].toUpperCase()));
+                    break;
+                case "--depth":
+                    orgTreeBenchmark.setDepth(Integer.parseInt(args[++i]));
+                    break;
+                case "--fan-out":
+                    orgTreeBenchmark.setFanOut(Integer.parseInt(args[++i]));
+                    break;
+                case "--inflate":
+                    orgTreeBenchmark.setInflatedFraction(Double.parseDouble(args[++i]));
+                    break;
+                case "--traversals":
+                    orgTreeBenchmark.setTraversals(Integer.parseInt(args[++i]));
+                    break;
+                case "--warmups":
+                    orgTreeBenchmark.setWarmups(Integer.parseInt(args[++i]));
+                    break;
+                case "--repetitions":
+                    orgTreeBenchmark.setRepetitions(Integer.parseInt(args[++i]));
+                    break;
+                default:
+                    System.err.println("Unexpected argument " + args[i]);
+                    System.err.println("Usage: OrgTreeBenchmark [--shape balanced|skewed] [--depth 6] [--fan-out 8] [--inflate 0.1] [--traversals 10] [--warmups 2] [--repetitions 5]");
+                    System.exit(2);
+            }
+        }
+
+        System.out.println("Testing " + orgTreeBenchmark.shape.name().toLowerCase() + " trees, depth = " + orgTreeBenchmark.depth
+                + ", fan-out = " + orgTreeBenchmark.fanOut + ", inflated supervisors = " + orgTreeBenchmark.inflatedFraction
+                + ", " + orgTreeBenchmark.warmups + " warm-ups, mean of " + orgTreeBenchmark.repetitions + " repetitions");
+        System.out.println(OrgTreeResult.header());
+        for (Class<? extends EmployeeIF> type : orgTreeBenchmark.benchmark.getTestClasses()) {
+            System.out.println(orgTreeBenchmark.test(type));
+        }
+    }
+}
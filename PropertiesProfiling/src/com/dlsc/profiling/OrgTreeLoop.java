@@ -0,0 +1,39 @@
+package com.dlsc.profiling;
+
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * The measured code of the {@link OrgTreeBenchmark}. Like the {@link EmployeeLoop}, every
+ * strategy gets its own copy of {@link SpecializedOrgTreeLoop}, see {@link #specialize()}.
+ */
+public interface OrgTreeLoop {
+
+    /**
+     * Builds the tree breadth first.
+     * @param employeeCreator Creates an employee from a name and powers.
+     * @param skewed true for a skewed tree, see {@link OrgTreeBenchmark}.
+     * @param depth The number of levels below the root.
+     * @param fanOut The number of minions per supervisor in a balanced tree.
+     * @param inflatedFraction The fraction of employees whose supervisor property gets created.
+     * @return All employees of the tree, the root first.
+     */
+    List<EmployeeIF> build(BiFunction<String, String, EmployeeIF> employeeCreator, boolean skewed, int depth, int fanOut, double inflatedFraction);
+
+    /**
+     * @return The number of employees visited walking down the minion lists.
+     */
+    long traverseMinions(EmployeeIF root);
+
+    /**
+     * @return The summed length of the supervisor chains of all employees.
+     */
+    long traverseSupervisors(List<EmployeeIF> employees);
+
+    /**
+     * @return A new loop, whose code is not shared with any other loop.
+     */
+    static OrgTreeLoop specialize() {
+        return SpecializedCode.newInstance(SpecializedOrgTreeLoop.class);
+    }
+}
@@ -1,7 +1,11 @@
 package com.dlsc.profiling;
 
 
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.beans.binding.*;
 import javafx.beans.property.*;
+import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.collections.ObservableMap;
@@ -10,7 +14,9 @@ import javafx.collections.ObservableSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * The PropertyAccessors is a static utility class that provides default methods to
@@ -25,6 +31,8 @@ import java.util.Set;
  *  Version 3 Uses reflection to generate index fields and dynamically create property types.
  *  Version 4 Removes the need of reflection. Also, added a convenience method to cast.
  *  Version 5 Converted this interface into a static utility class.
+ *  Version 6 Added derived fields, computed values cached until one of their sources is set.
+ *  Version 7 Added default values, shared by all instances holding an equal value.
  * </pre>
  *
  * This API allows the developer to easily specify fields without having boilerplate code
@@ -65,6 +73,13 @@ import java.util.Set;
  * Created by Carl Dea
  */
 public class PropertyAccessors {
+
+    /**
+     * Stands for a derived value that was computed as null, to tell it apart from a
+     * derived field that still needs to be computed.
+     */
+    private static final Object NULL_VALUE = new Object();
+
     private PropertyAccessors() {}
     /**
      * Convenience function to reduce boiler plate of casting objects to return an object.
@@ -112,6 +127,42 @@ public class PropertyAccessors {
         }
     }
 
+    /**
+     * Same as {@link #setValue(Object, Object)}, but a value equal to the default is replaced
+     * by the default instance itself. This way all beans holding the default share a single
+     * object instead of keeping equal copies alive, and the default can be recognized by
+     * identity. The default is declared once per class:
+     * <pre>
+     *     <code>
+     *        public static final String DEFAULT_MY_BRAIN = "empty";
+     *
+     *        private Object myBrain = DEFAULT_MY_BRAIN;
+     *
+     *        public final void setMyBrain((String myBrain) {
+     *           this.myBrain = setValue(this.myBrain, myBrain, DEFAULT_MY_BRAIN);
+     *        }
+     *     </code>
+     * </pre>
+     * A property created by refProperty() is seeded with the default like with any other value.
+     * @param p The potential property object.
+     * @param value The raw value to set.
+     * @param defaultValue The default value declared by the class.
+     * @param <T> The value type either raw or a property.
+     * @return A property or raw object is returned for the caller to set.
+     */
+    public static <T> T setValue(Object p, Object value, Object defaultValue) {
+        return setValue(p, Objects.equals(value, defaultValue) ? defaultValue : value);
+    }
+
+    /**
+     * @param p The potential property object.
+     * @param defaultValue The default value declared by the class.
+     * @return true if the field holds the default, these fields can be skipped when copying or storing beans.
+     */
+    public static boolean isDefault(Object p, Object defaultValue) {
+        return p == defaultValue || Objects.equals(getValue(p), defaultValue);
+    }
+
     /**
      * This method will return a Property type value for the caller to set.
      * <pre>
@@ -162,6 +213,143 @@ public class PropertyAccessors {
         return (T) prop;
     }
 
+    /**
+     * Same as {@link #refProperty(Object, String, Object, Class)}, but adds the given listener
+     * when the property gets created. Use this for fields that are the source of a derived
+     * field, so the derived value gets invalidated when the property is changed directly.
+     * <pre>
+     *     <code>
+     *        public final StringProperty myBrainProperty() {
+     *           myBrain = refProperty(this, "myBrain", myBrain, SimpleStringProperty.class, this::invalidateMyThoughts);
+     *           return cast(myBrain);
+     *        }
+     *     </code>
+     * </pre>
+     * @param name Name of the property
+     * @param p potential callers attribute value (raw or a property)
+     * @param propertyClass The concreate JavaFX property class such as SimpleStringProperty.class
+     * @param listener The listener to add to a newly created property.
+     * @param <T> The Property object for the caller to set as.
+     * @return The return of the property object.
+     */
+    public static <T> T refProperty(Object bean, String name, Object p, Class propertyClass, InvalidationListener listener) {
+        if (p instanceof Property) {
+            return (T) p;
+        }
+        Property prop = refProperty(bean, name, p, propertyClass);
+        prop.addListener(listener);
+        return (T) prop;
+    }
+
+    /**
+     * This method will return the cached value of a derived field, computing it first if the
+     * field was never computed or has been invalidated. No JavaFX binding is created, the
+     * value is simply stored in the derived field until one of its sources changes.
+     * <pre>
+     *     The derived field is declared as a transient Object, as it is not part of the state of the bean.
+     *     <code>
+     *        private transient Object myThoughts;
+     *
+     *        public final String getMyThoughts() {
+     *           myThoughts = refDerived(myThoughts, this::computeMyThoughts);
+     *           return getDerivedValue(myThoughts);
+     *        }
+     *     </code>
+     * </pre>
+     * @param d The derived field (null, a cached value or a binding).
+     * @param computation Computes the value from the source fields.
+     * @param <T> The derived field value for the caller to set.
+     * @return The cached value or the binding for the caller to set.
+     */
+    public static <T> T refDerived(Object d, Supplier<?> computation) {
+        if (d == null) {
+            Object value = computation.get();
+            return (T) (value == null ? NULL_VALUE : value);
+        }
+        return (T) d;
+    }
+
+    /**
+     * Returns the value of a derived field returned by {@link #refDerived(Object, Supplier)}
+     * or {@link #refBinding(Object, Class, Supplier, Observable...)}.
+     * @param d The derived field.
+     * @param <T> The raw value is returned.
+     * @return Object value raw type.
+     */
+    public static <T> T getDerivedValue(Object d) {
+        if (d instanceof ObservableValue) {
+            return (T) ((ObservableValue) d).getValue();
+        }
+        return d == NULL_VALUE ? null : (T) d;
+    }
+
+    /**
+     * Invalidates a derived field. Call this whenever one of the source fields is set.
+     * <pre>
+     *     <code>
+     *        public final void setMyBrain((String myBrain) {
+     *           this.myBrain = setValue(this.myBrain, myBrain);
+     *           myThoughts = invalidate(myThoughts);
+     *        }
+     *     </code>
+     * </pre>
+     * @param d The derived field.
+     * @param <T> The derived field value for the caller to set.
+     * @return null for a cached value, or the binding (which will be recomputed when read).
+     */
+    public static <T> T invalidate(Object d) {
+        if (d instanceof Binding) {
+            ((Binding) d).invalidate();
+            return (T) d;
+        }
+        return null;
+    }
+
+    /**
+     * This method will return a Binding for a derived field, replacing the cached value.
+     * Only call this when someone asks for the observable value, as the binding observes
+     * the properties of all its sources (which means they need to be created as well).
+     * <pre>
+     *     <code>
+     *        public final StringBinding myThoughtsProperty() {
+     *           myThoughts = refBinding(myThoughts, StringBinding.class, this::computeMyThoughts, myBrainProperty());
+     *           return cast(myThoughts);
+     *        }
+     *     </code>
+     * </pre>
+     * @param d The derived field (null, a cached value or a binding).
+     * @param bindingClass The JavaFX binding class such as StringBinding.class
+     * @param computation Computes the value from the source fields.
+     * @param dependencies The properties of the source fields.
+     * @param <T> The Binding object for the caller to set as.
+     * @return The return of the binding object.
+     */
+    public static <T> T refBinding(Object d, Class bindingClass, Supplier<?> computation, Observable... dependencies) {
+        if (d instanceof Binding) {
+            return (T) d;
+        }
+
+        Binding binding;
+        if (BooleanBinding.class == bindingClass) {
+            binding = Bindings.createBooleanBinding(() -> (Boolean) computation.get(), dependencies);
+        } else if (DoubleBinding.class == bindingClass) {
+            binding = Bindings.createDoubleBinding(() -> (Double) computation.get(), dependencies);
+        } else if (FloatBinding.class == bindingClass) {
+            binding = Bindings.createFloatBinding(() -> (Float) computation.get(), dependencies);
+        } else if (IntegerBinding.class == bindingClass) {
+            binding = Bindings.createIntegerBinding(() -> (Integer) computation.get(), dependencies);
+        } else if (LongBinding.class == bindingClass) {
+            binding = Bindings.createLongBinding(() -> (Long) computation.get(), dependencies);
+        } else if (ObjectBinding.class == bindingClass) {
+            binding = Bindings.createObjectBinding(computation::get, dependencies);
+        } else if (StringBinding.class == bindingClass) {
+            binding = Bindings.createStringBinding(() -> (String) computation.get(), dependencies);
+        } else {
+            throw new RuntimeException("Unsupported Binding class " + bindingClass.getName());
+        }
+        return (T) binding;
+    }
+
 // @TODO update API to support Simple Lists, Maps and Sets
 //                SimpleListProperty
 //                SimpleMapProperty
@@ -0,0 +1,82 @@
+package com.dlsc.profiling;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Creates instances of private copies of a template class. Every copy is defined by its own
+ * class loader from the bytecode of the template, so the JIT keeps a separate type profile
+ * for it. Benchmarks use this to run every strategy through code that has only seen that
+ * strategy. A copy may only use public classes and members, and is used through an
+ * interface loaded by the parent.
+ */
+public final class SpecializedCode {
+
+    private SpecializedCode() {}
+
+    /**
+     * @param template The class to copy. It needs a public no-arg constructor.
+     * @param <T> The interface implemented by the template.
+     * @return An instance of a new copy of the template.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T newInstance(Class<? extends T> template) {
+        String name = template.getName();
+        try {
+            return (T) new SpecializingClassLoader(template.getClassLoader(), name).loadClass(name).getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Can not specialize " + name, e);
+        }
+    }
+
+    /**
+     * Defines the template class itself and leaves every other class to the parent, so
+     * the copy still works with the employee classes and the interfaces of the parent.
+     */
+    private static final class SpecializingClassLoader extends ClassLoader {
+
+        private final String templateName;
+
+        SpecializingClassLoader(ClassLoader parent, String templateName) {
+            super(parent);
+            this.templateName = templateName;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.equals(templateName)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> type = findLoadedClass(name);
+                if (type == null) {
+                    byte[] bytecode = readBytecode(name);
+                    type = defineClass(name, bytecode, 0, bytecode.length);
+                }
+                if (resolve) {
+                    resolveClass(type);
+                }
+                return type;
+            }
+        }
+
+        private byte[] readBytecode(String name) throws ClassNotFoundException {
+            try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                if (in == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                return out.toByteArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
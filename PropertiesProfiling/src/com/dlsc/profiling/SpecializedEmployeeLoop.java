@@ -0,0 +1,54 @@
+package com.dlsc.profiling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * The template of the {@link EmployeeLoop}. It is never used directly, but copied once per
+ * strategy by {@link EmployeeLoop#specialize()}. Every copy lives in its own class loader,
+ * so it may only use public classes and members.
+ */
+public class SpecializedEmployeeLoop implements EmployeeLoop {
+
+    @Override
+    public List<EmployeeIF> build(BiFunction<String, String, EmployeeIF> employeeCreator, int count, boolean accessProperties, boolean derivedValues, boolean skewedValues) {
+        List<EmployeeIF> employees = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            EmployeeIF employee = employeeCreator.apply("name", skewedValues ? skewedPowers(i) : "powers");
+            if (accessProperties) {
+                employee.nameProperty();
+                employee.powersProperty();
+                employee.supervisorProperty();
+                employee.getMinions();
+                if (derivedValues) {
+                    employee.displayLabelProperty();
+                }
+            }
+            if (derivedValues) {
+                employee.getDisplayLabel();
+            }
+            employees.add(employee);
+        }
+
+        if (derivedValues) {
+            for (int i = 0; i < count; i += 2) {
+                employees.get(i).setName("other name");
+            }
+            for (EmployeeIF employee : employees) {
+                employee.getDisplayLabel();
+                employee.getDisplayLabel();
+            }
+        }
+
+        return employees;
+    }
+
+    /*
+     * Copies the characters, as new String("powers") would share the array of the literal.
+     */
+    private static String skewedPowers(int i) {
+        return i % 10 == 0 ? "powers " + i : new String("powers".toCharArray());
+    }
+}
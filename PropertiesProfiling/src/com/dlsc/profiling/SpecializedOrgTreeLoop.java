@@ -0,0 +1,79 @@
+package com.dlsc.profiling;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiFunction;
+
+/**
+ * The template of the {@link OrgTreeLoop}. It is never used directly, but copied once per
+ * strategy by {@link OrgTreeLoop#specialize()}, so it may only use public classes and members.
+ */
+public class SpecializedOrgTreeLoop implements OrgTreeLoop {
+
+    @Override
+    public List<EmployeeIF> build(BiFunction<String, String, EmployeeIF> employeeCreator, boolean skewed, int depth, int fanOut, double inflatedFraction) {
+        Random random = new Random(42);
+        List<EmployeeIF> employees = new ArrayList<>();
+
+        Deque<EmployeeIF> supervisors = new ArrayDeque<>();
+        Deque<int[]> positions = new ArrayDeque<>(); // level and rank among the siblings
+
+        EmployeeIF root = employeeCreator.apply("name", "powers");
+        employees.add(root);
+        supervisors.add(root);
+        positions.add(new int[] { 0, 0 });
+
+        while (!supervisors.isEmpty()) {
+            EmployeeIF supervisor = supervisors.poll();
+            int[] position = positions.poll();
+            if (position[0] == depth) {
+                continue;
+            }
+
+            int minions = skewed ? fanOut / (position[1] + 1) : fanOut;
+            for (int i = 0; i < minions; i++) {
+                EmployeeIF minion = employeeCreator.apply("name", "powers");
+                minion.setSupervisor(supervisor);
+                if (random.nextDouble() < inflatedFraction) {
+                    minion.supervisorProperty();
+                }
+                supervisor.getMinions().add(minion);
+
+                employees.add(minion);
+                supervisors.add(minion);
+                positions.add(new int[] { position[0] + 1, i });
+            }
+        }
+
+        return employees;
+    }
+
+    @Override
+    public long traverseMinions(EmployeeIF root) {
+        long visited = 0;
+        Deque<EmployeeIF> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            EmployeeIF employee = stack.pop();
+            visited++;
+            for (Object minion : employee.getMinions()) {
+                stack.push((EmployeeIF) minion);
+            }
+        }
+        return visited;
+    }
+
+    @Override
+    public long traverseSupervisors(List<EmployeeIF> employees) {
+        long chainLength = 0;
+        for (EmployeeIF employee : employees) {
+            for (EmployeeIF supervisor = employee.getSupervisor(); supervisor != null; supervisor = supervisor.getSupervisor()) {
+                chainLength++;
+            }
+        }
+        return chainLength;
+    }
+}